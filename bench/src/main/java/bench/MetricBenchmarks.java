@@ -0,0 +1,186 @@
+package bench;
+
+import analyzers.*;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks JMH du parse et de chaque analyseur sur des corpus synthétiques (SyntheticCorpus) :
+ * une classe seule (small, large) ou une arborescence de fichiers (tree). Temps moyen par opération ;
+ * "-prof gc" donne les octets alloués par opération (gc.alloc.rate.norm).
+ *
+ * Le parse utilise la configuration du pipeline (AnalysisPipeline.parserConfiguration) : mêmes
+ * niveau de langage, tokens et commentaires que les analyses réelles.
+ *
+ * Depuis la racine du projet :
+ *   mvn -f bench/pom.xml package
+ *   java -jar bench/target/benchmarks.jar -prof gc
+ *   java -jar bench/target/benchmarks.jar "MetricBenchmarks.analyze" -p corpus=large -p analyzer=COMAnalyzer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class Source {
+        @Param({"small", "large"})
+        public String corpus;
+
+        JavaParser parser;
+        String text;
+        CompilationUnit cu;
+
+        @Setup
+        public void setUp() {
+            parser = newParser();
+            text = corpus.equals("small") ? SyntheticCorpus.smallClass() : SyntheticCorpus.largeClass();
+            cu = parse(parser, text);
+        }
+    }
+
+    /**
+     * Arborescence écrite dans un dossier temporaire, parsée une fois pour les analyseurs seuls
+     */
+    @State(Scope.Benchmark)
+    public static class Tree {
+        @Param({"2000"})
+        public int files;
+
+        JavaParser parser;
+        Path root;
+        List<String> texts;
+        List<CompilationUnit> units;
+
+        @Setup
+        public void setUp() throws IOException {
+            parser = newParser();
+            root = Files.createTempDirectory("metric-bench");
+            SyntheticCorpus.writeTree(root, files);
+            List<Path> javaFiles;
+            try (Stream<Path> paths = Files.walk(root)) {
+                javaFiles = paths.filter(p -> p.toString().endsWith(".java")).sorted().collect(Collectors.toList());
+            }
+            texts = new ArrayList<>();
+            for (Path file : javaFiles) texts.add(Files.readString(file));
+            units = new ArrayList<>();
+            for (String text : texts) units.add(parse(parser, text));
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Analysis {
+        @Param({"dmsAnalyzer", "JAXAnalyzer", "ExceptionAnalyzer", "EncapsulationAnalyzer",
+                "ImportConflictAnalyzer", "COMAnalyzer"})
+        public String analyzer;
+
+        Analyzer instance;
+
+        @Setup
+        public void setUp() {
+            // Le chemin du projet ne sert qu'à analyze() : visit() ne lit que la CompilationUnit
+            for (Analyzer candidate : analyzers(Paths.get("."))) {
+                if (candidate.getClass().getSimpleName().equals(analyzer)) instance = candidate;
+            }
+            if (instance == null) throw new IllegalArgumentException("Analyseur inconnu: " + analyzer);
+        }
+    }
+
+    @Benchmark
+    public CompilationUnit parse(Source source) {
+        return parse(source.parser, source.text);
+    }
+
+    // Chaque analyseur isolément sur une CompilationUnit déjà parsée
+    @Benchmark
+    public void analyze(Source source, Analysis analysis, Blackhole blackhole) {
+        analysis.instance.visit(source.cu, new BlackholeSink(blackhole));
+    }
+
+    @Benchmark
+    public void treeParse(Tree tree, Blackhole blackhole) {
+        for (String text : tree.texts) blackhole.consume(parse(tree.parser, text));
+    }
+
+    @Benchmark
+    public void treeAnalyze(Tree tree, Analysis analysis, Blackhole blackhole) {
+        MetricSink sink = new BlackholeSink(blackhole);
+        for (CompilationUnit cu : tree.units) analysis.instance.visit(cu, sink);
+    }
+
+    // analyze() d'un analyseur seul : walk, lecture et parse compris
+    @Benchmark
+    public MetricTable treeJaxAnalyze(Tree tree) throws IOException {
+        return new JAXAnalyzer(tree.root).analyze();
+    }
+
+    // Pipeline complet : walk + parse + six analyseurs
+    @Benchmark
+    public void treePipeline(Tree tree, Blackhole blackhole) throws IOException {
+        SourceSet sources = SourceSet.resolve(tree.root, SourceSet.Scope.MAIN);
+        new AnalysisPipeline(sources, 1, analyzers(tree.root)).run(blackhole::consume);
+    }
+
+    private static JavaParser newParser() {
+        return new JavaParser(AnalysisPipeline.parserConfiguration(AnalysisPipeline.languageLevel("POPULAR")));
+    }
+
+    // Comme le pipeline : commentaires du parse attachés pour JAXAnalyzer et ImportConflictAnalyzer
+    private static CompilationUnit parse(JavaParser parser, String text) {
+        ParseResult<CompilationUnit> result = parser.parse(text);
+        CompilationUnit cu = result.getResult().orElseThrow();
+        SourceComments.attach(cu, result);
+        return cu;
+    }
+
+    private static Analyzer[] analyzers(Path root) {
+        return new Analyzer[]{
+                new dmsAnalyzer(root),
+                new JAXAnalyzer(root),
+                new ExceptionAnalyzer(root),
+                new EncapsulationAnalyzer(root),
+                new ImportConflictAnalyzer(root),
+                new COMAnalyzer(root)
+        };
+    }
+
+    // Consomme les métriques sans les stocker
+    private static final class BlackholeSink implements MetricSink {
+        private final ClassIndex index = new ClassIndex();
+        private final Blackhole blackhole;
+
+        BlackholeSink(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public int classId(String qualifiedName) {
+            return index.id(qualifiedName);
+        }
+
+        @Override
+        public void put(int classId, Metric metric, double value) {
+            blackhole.consume(classId);
+            blackhole.consume(value);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Génère des sources Java synthétiques de taille contrôlée : imports, champs, méthodes avec
+ * branches et boucles, appels, exceptions, classes imbriquées et commentaires.
+ */
+public final class SyntheticCorpus {
+    private SyntheticCorpus() {
+    }
+
+    // Petite classe (~60 lignes)
+    public static String smallClass() {
+        return generate("bench.small", "SmallClass", 3, 4);
+    }
+
+    // Classe d'environ 5 000 lignes
+    public static String largeClass() {
+        return generate("bench.large", "LargeClass", 40, 330);
+    }
+
+    /**
+     * Écrit une arborescence de fichiers de taille moyenne, répartis sur plusieurs packages
+     */
+    public static void writeTree(Path root, int files) throws IOException {
+        for (int i = 0; i < files; i++) {
+            String pkg = "bench.tree.p" + (i % 40);
+            Path dir = root.resolve("src/main/java").resolve(pkg.replace('.', '/'));
+            Files.createDirectories(dir);
+            String className = "Type" + i;
+            Files.writeString(dir.resolve(className + ".java"),
+                    generate(pkg, className, 6 + i % 10, 8 + i % 25), StandardCharsets.UTF_8);
+        }
+    }
+
+    static String generate(String pkg, String className, int fields, int methods) {
+        StringBuilder src = new StringBuilder(methods * 1024);
+        src.append("/*\n * Synthetic source for benchmarks.\n */\n");
+        src.append("package ").append(pkg).append(";\n\n");
+        src.append("import java.io.IOException;\n");
+        src.append("import java.util.ArrayList;\n");
+        src.append("import java.util.List;\n");
+        src.append("import java.util.Map;\n");
+        src.append("import java.util.HashMap;\n");
+        src.append("import java.util.concurrent.*;\n\n");
+        src.append("/**\n * Generated class {@link List} holder.\n */\n");
+        src.append("public class ").append(className).append(" extends Object implements Comparable<")
+                .append(className).append("> {\n");
+        for (int f = 0; f < fields; f++) {
+            String visibility = f % 3 == 0 ? "private" : f % 3 == 1 ? "protected" : "public";
+            src.append("    ").append(visibility).append(" int field").append(f).append(" = ").append(f).append(";\n");
+        }
+        src.append("    private final List<String> names = new ArrayList<>();\n");
+        src.append("    private final Map<String, Integer> index = new HashMap<>();\n\n");
+        for (int m = 0; m < methods; m++) {
+            int a = m % Math.max(1, fields);
+            int b = (m * 7 + 3) % Math.max(1, fields);
+            src.append("    // method ").append(m).append('\n');
+            src.append("    public int compute").append(m).append("(int value) throws IOException {\n");
+            src.append("        int result = field").append(a).append(" + value;\n");
+            src.append("        for (int i = 0; i < value; i++) {\n");
+            src.append("            if (i % 2 == 0 && names.size() > i) {\n");
+            src.append("                result += names.get(i).length();\n");
+            src.append("            } else {\n");
+            src.append("                result -= field").append(b).append(";\n");
+            src.append("            }\n");
+            src.append("        }\n");
+            src.append("        while (result > 1000) {\n");
+            src.append("            result = result / 2;\n");
+            src.append("        }\n");
+            src.append("        switch (result % 3) {\n");
+            src.append("            case 0: index.put(\"k\" + result, result); break;\n");
+            src.append("            default: names.add(String.valueOf(result));\n");
+            src.append("        }\n");
+            if (m > 0) {
+                src.append("        result += compute").append(m - 1).append("(value - 1);\n");
+            }
+            src.append("        return result;\n");
+            src.append("    }\n\n");
+        }
+        src.append("    @Override\n");
+        src.append("    public int compareTo(").append(className).append(" other) {\n");
+        src.append("        return Integer.compare(field0, other.field0);\n");
+        src.append("    }\n\n");
+        src.append("    static class Helper {\n");
+        src.append("        private int count;\n");
+        src.append("        void tick() throws InterruptedException {\n");
+        src.append("            count++;\n");
+        src.append("            Thread.sleep(count);\n");
+        src.append("        }\n");
+        src.append("    }\n");
+        src.append("}\n");
+        return src.toString();
+    }
+}
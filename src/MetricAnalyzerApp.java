@@ -1,164 +1,609 @@
 import analyzers.*;
+import com.github.javaparser.ParserConfiguration;
 import com.opencsv.CSVWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import defects4j.BugVersion;
+import defects4j.CheckoutScheduler;
+import defects4j.Defects4J;
+import defects4j.GitSources;
+import defects4j.WorkQueue;
+import report.ColumnarWriter;
+import report.CsvReportWriter;
+import report.PartialResults;
+import report.ReportSink;
+import report.SummaryStatistic;
 
 import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MetricAnalyzerApp {
     private static final String DEFECTS4J_PATH = "/home/ramine001/defects4j/framework/bin/defects4j";
     private static final String PROJECTS_PATH = "/home/ramine001/defects4j/framework/projects";
-    private static final String[] PROJECTS = {"Math"};
+    private static final String PROJECTS = "Math";
     private static final String[] VERSIONS = {"b", "f"}; // buggy and fixed
+    // Noms qualifiés des classes, partagés par toutes les versions analysées
+    private static final ClassIndex CLASS_INDEX = new ClassIndex();
+    // --resolve : noms de types résolus (imports, sources du checkout, classpath, JDK) au lieu des heuristiques
+    private static Defects4J resolveWith;
+    // Parse : niveau de langage du premier essai, budget par fichier, fichiers rejetés
+    private static ParserConfiguration.LanguageLevel languageLevel = ParserConfiguration.LanguageLevel.POPULAR;
+    private static long parseTimeoutMillis;
+    private static long maxFileBytes;
+    // --encoding ISO-8859-1 : encodage des sources (UTF-8 par défaut, repli ISO-8859-1 par fichier invalide)
+    private static Charset charset;
+    private static CSVWriter rejects;
+    // Temps, CPU et allocation par étape de tout le run, écrits dans output/run-report.{json,csv}
+    private static final RunMetrics METRICS = new RunMetrics();
+    // Fichiers sources lus une fois et partagés par les pipelines (--source-cache-mb)
+    private static SourceCache sourceCache;
+    // Réglages d'analyse communs au run local, aux workers et au coordinateur
+    private static Defects4J d4j;
+    private static int threads;
+    private static int checkouts;
+    private static Path cacheDir;
+    private static List<SourceSet.Scope> scopes;
+    private static boolean diffScoped;
+    // --binary : results.bin colonnaire en plus du CSV (lecture avec report.ColumnarReader)
+    private static boolean binary;
+    // --summary avg,std,min,max,count,p50,p90... : lignes de synthèse par version et, si demandé, par projet
+    private static List<SummaryStatistic> summary;
+    private static boolean projectSummaries;
+    // --tier fast : lignes et imports par passe lexicale seulement, sans parse ni analyseurs
+    private static AnalysisPipeline.Tier tier;
+    // --type-graph : DIT, NOC, CBO, FAN_IN, FAN_OUT, RFC ; un graphe par ensemble de sources,
+    // repris d'une version à l'autre en ne remplaçant que les fichiers modifiés. Les lignes d'une version
+    // attendent le graphe complet : avec --heap-budget, elles passent sur disque au-delà de leur part
+    private static boolean withTypeGraph;
+    private static final Map<SourceSet.Scope, TypeGraph> TYPE_GRAPHS = new ConcurrentHashMap<>();
+    // --git-repo Math=/chemin/commons-math.git : versions lues dans le dépôt, sans checkout
+    private static Map<String, GitSources> gitSources = Map.of();
+    // --heap-budget MB : moitié pour les fichiers en cours d'analyse, partagée entre les checkouts
+    // simultanés, un quart au plus pour les caches de sources
+    private static long heapBudget = Long.MAX_VALUE;
 
     public static void main(String[] args) throws Exception {
-        File outputFile = new File("output/results.csv");
-        outputFile.getParentFile().mkdirs();
-
-        try (CSVWriter writer = new CSVWriter(new FileWriter(outputFile))) {
-            String[] header = {
-                    "project", "version", "class",
-                    "lignes_code", "lignes_comm", "nb_methodes", "nb_interfaces",
-                    "nb_sous_classes", "nb_classes_abstract", "jax_nb_methodes_abstraites",
-                    "DJEA", "NDJEA",
-                    "ICU", "ICNU", "ICD", "ICC",
-                    "encapsulation_rate_methods","encapsulation_rate_fields","encapsulation_rate_total", "dms_score", "CohesionRate"
-            };
-            writer.writeNext(header);
-
-            for (String project : PROJECTS) {
-                for (int i = 1; i <= 2; i++) {
-                    for (String v : VERSIONS) {
-                        String pid = project + "-" + i;
-                        String version = v.equals("b") ? "buggy" : "fixed";
-                        System.out.println("Checking out " + pid + " (" + version + ")...");
-
-                        Path checkoutPath = Paths.get(PROJECTS_PATH, pid + "-" + version);
-                        if (!checkoutProject(pid, v, checkoutPath)) {
-                            System.err.println("Failed to checkout " + pid + "-" + version + ", skipping.");
-                            continue;
-                        }
-                        System.out.println("Analyse de " + pid + " (" + version + ") dans " + checkoutPath);
-
-                        // Instancie chaque analyseur avec le checkoutPath courant
-                        JAXAnalyzer jax = new JAXAnalyzer(checkoutPath);
-                        ExceptionAnalyzer ex = new ExceptionAnalyzer(checkoutPath);
-                        EncapsulationAnalyzer en = new EncapsulationAnalyzer(checkoutPath);
-                        dmsAnalyzer dms = new dmsAnalyzer(checkoutPath);
-                        ImportConflictAnalyzer imp = new ImportConflictAnalyzer(checkoutPath);
-                        COMAnalyzer com = new COMAnalyzer(checkoutPath);
-                        // Merge des métriques pour CETTE version uniquement
-                        Map<String, Map<String, String>> allMetrics = mergeClassMetrics(
-                                dms.analyze(),
-                                jax.analyze(),
-                                ex.analyze(),
-                                en.analyze(),
-                                imp.analyze(),
-                                com.analyze()
-                        );
-
-                        List<Map<String, String>> rows = new ArrayList<>();
-
-                        for (Map.Entry<String, Map<String, String>> entry : allMetrics.entrySet()) {
-                            String className = entry.getKey();
-                            Map<String, String> metrics = entry.getValue();
-                            metrics.put("project", pid);
-                            metrics.put("version", version);
-                            metrics.put("class", className);
-                            rows.add(metrics);
-                            writer.writeNext(toCSVRow(header, metrics));
-                        }
-
-                        // --- Calcul AVG pour cette version ---
-                        Map<String, Double> sums = new HashMap<>();
-                        Map<String, Integer> counts = new HashMap<>();
-
-                        for (Map<String, String> row : rows) {
-                            for (String col : header) {
-                                if (List.of("project", "version", "class").contains(col)) continue;
-                                String valStr = row.get(col);
-                                if (valStr != null && !valStr.isBlank()) {
-                                    try {
-                                        // Remplacer la virgule décimale par un point si besoin
-                                        double val = Double.parseDouble(valStr.replace(',', '.'));
-                                        sums.put(col, sums.getOrDefault(col, 0.0) + val);
-                                        counts.put(col, counts.getOrDefault(col, 0) + 1);
-                                    } catch (NumberFormatException e) {
-                                        // Log pour debug si valeur non numérique
-                                        System.out.println("Impossible de parser la valeur [" + valStr + "] pour " + col + " (classe " + row.get("class") + ")");
-                                    }
-                                }
-                            }
-                        }
-
-                        // Log debug : combien de classes et combien de valeurs par métrique
-                        System.out.println("Calcul AVG pour " + pid + " - " + version
-                                + " (" + rows.size() + " classes)");
-                        for (String col : header) {
-                            if (List.of("project", "version", "class").contains(col)) continue;
-                            System.out.println("  " + col + " : " + counts.getOrDefault(col, 0) + " valeurs");
-                        }
-
-                        Map<String, String> avgRow = new HashMap<>();
-                        avgRow.put("project", pid);
-                        avgRow.put("version", version);
-                        avgRow.put("class", "AVG");
-
-                        for (String col : header) {
-                            if (List.of("project", "version", "class").contains(col)) continue;
-                            int count = counts.getOrDefault(col, 0);
-                            if (count > 0) {
-                                double avg = sums.get(col) / count;
-                                avgRow.put(col, String.format(Locale.US, "%.2f", avg));
-                            } else {
-                                avgRow.put(col, "");
-                            }
-                        }
-
-                        writer.writeNext(toCSVRow(header, avgRow));
-                        writer.flush();
+        threads = Integer.parseInt(option(args, "--threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        checkouts = Integer.parseInt(option(args, "--checkouts", "2"));
+        // Cache des métriques par contenu de fichier, conservé entre les exécutions (--no-cache pour le désactiver)
+        cacheDir = hasFlag(args, "--no-cache") ? null : Paths.get(option(args, "--cache", "output/cache"));
+        // Sources analysées : main (défaut), tests, all (tout le checkout) ou split (main puis tests à part)
+        String sourcesOption = option(args, "--sources", "main");
+        scopes = sourcesOption.equals("split")
+                ? List.of(SourceSet.Scope.MAIN, SourceSet.Scope.TESTS)
+                : List.of(SourceSet.Scope.valueOf(sourcesOption.toUpperCase(Locale.ROOT)));
+        d4j = new Defects4J(Paths.get(option(args, "--defects4j", DEFECTS4J_PATH)),
+                Paths.get(option(args, "--projects-path", PROJECTS_PATH)));
+        if (hasFlag(args, "--resolve")) resolveWith = d4j;
+        // Defects4J mélange des sources Java 1.4 à 8 : ex. --language-level JAVA_1_4, repli RAW automatique
+        languageLevel = AnalysisPipeline.languageLevel(option(args, "--language-level", "POPULAR"));
+        parseTimeoutMillis = Long.parseLong(option(args, "--parse-timeout", "60")) * 1000;
+        maxFileBytes = Long.parseLong(option(args, "--max-file-kb", "4096")) * 1024;
+        charset = Charset.forName(option(args, "--encoding", "UTF-8"));
+        long sourceCacheBytes = Long.parseLong(option(args, "--source-cache-mb", "256")) * 1024 * 1024;
+        if (option(args, "--heap-budget", null) != null) {
+            heapBudget = Long.parseLong(option(args, "--heap-budget", null)) * 1024 * 1024;
+            sourceCacheBytes = Math.min(sourceCacheBytes, heapBudget / 4);
+        }
+        sourceCache = new SourceCache(sourceCacheBytes);
+        // Mode ciblé : seules les classes modifiées par le correctif, avec le delta fixed - buggy
+        diffScoped = hasFlag(args, "--diff-scoped");
+        binary = hasFlag(args, "--binary");
+        tier = AnalysisPipeline.Tier.valueOf(option(args, "--tier", "full").toUpperCase(Locale.ROOT));
+        withTypeGraph = hasFlag(args, "--type-graph");
+        // Le mode ciblé n'analyse que les fichiers modifiés : pas de graphe complet du projet
+        if (withTypeGraph && diffScoped) {
+            throw new IllegalArgumentException("--type-graph ne peut pas être combiné avec --diff-scoped");
+        }
+        String gitRepos = option(args, "--git-repo", null);
+        if (gitRepos != null) {
+            gitSources = openGitSources(gitRepos, option(args, "--projects", PROJECTS), sourceCacheBytes);
+            if (resolveWith != null) {
+                System.err.println("--resolve sans checkout : seuls les imports et le JDK sont résolus pour ces projets");
+            }
+        }
+        summary = SummaryStatistic.parse(option(args, "--summary", "avg"));
+        projectSummaries = option(args, "--summary", null) != null;
+        Path outputDir = Files.createDirectories(Paths.get(option(args, "--output", "output")));
+
+        // Sweep distribué : --coordinator --workers N lance N workers locaux sur une file partagée,
+        // --worker DIR traite les tâches d'une file (aussi depuis une autre machine), --merge DIR fusionne
+        String mergeDir = option(args, "--merge", null);
+        if (mergeDir != null) {
+            merge(new WorkQueue(Paths.get(mergeDir)), outputDir);
+            return;
+        }
+        String workerQueue = option(args, "--worker", null);
+        Path reportDir = workerQueue == null ? outputDir : Files.createDirectories(Paths.get(workerQueue)
+                .resolve("workers").resolve(option(args, "--worker-id", String.valueOf(ProcessHandle.current().pid()))));
+
+        // --jfr : événements d'étape enregistrés dans output/run.jfr (JDK Mission Control, "jfr print")
+        if (hasFlag(args, "--jfr")) METRICS.startRecording(reportDir.resolve("run.jfr"));
+        try {
+            if (option(args, "--serve", null) != null) {
+                serve(Integer.parseInt(option(args, "--serve", null)), outputDir);
+            } else if (workerQueue != null) {
+                work(new WorkQueue(Paths.get(workerQueue)));
+            } else if (hasFlag(args, "--coordinator")) {
+                coordinate(args, Paths.get(option(args, "--queue", outputDir.resolve("queue").toString())),
+                        Integer.parseInt(option(args, "--workers", "2")), outputDir);
+            } else {
+                sweep(listBugs(args), outputDir.resolve("results.csv"), outputDir.resolve("rejects.csv"), projectSummaries);
+            }
+        } finally {
+            for (GitSources git : new HashSet<>(gitSources.values())) git.close();
+            METRICS.close();
+            METRICS.writeReport(reportDir);
+        }
+    }
+
+    /**
+     * "Math=/dépôts/commons-math.git,Lang=..." ; un chemin seul vaut pour tous les projets de --projects
+     */
+    private static Map<String, GitSources> openGitSources(String repos, String projects, long cacheBytes)
+            throws IOException {
+        Map<String, GitSources> sources = new HashMap<>();
+        for (String entry : repos.split(",")) {
+            int equals = entry.indexOf('=');
+            if (equals < 0) {
+                GitSources shared = new GitSources(d4j, Paths.get(entry.trim()), cacheBytes);
+                for (String project : projects.split(",")) sources.put(project.trim(), shared);
+            } else {
+                sources.put(entry.substring(0, equals).trim(),
+                        new GitSources(d4j, Paths.get(entry.substring(equals + 1).trim()), cacheBytes));
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Versions à analyser : tous les bugs actifs des projets (--projects, ex. "Math,Lang"),
+     * ou seulement la liste --bugs (ex. "1-5,7")
+     */
+    private static List<BugVersion> listBugs(String[] args) throws IOException, InterruptedException {
+        String bugRange = option(args, "--bugs", null);
+        List<BugVersion> bugs = new ArrayList<>();
+        for (String project : option(args, "--projects", PROJECTS).split(",")) {
+            List<Integer> bugIds = bugRange != null ? parseBugIds(bugRange) : d4j.bugIds(project.trim());
+            for (int i : bugIds) {
+                for (String v : VERSIONS) {
+                    bugs.add(new BugVersion(project.trim(), i, v));
+                }
+            }
+        }
+        return bugs;
+    }
+
+    /**
+     * Analyse les versions dans l'ordre et écrit leurs lignes dans resultsFile, suivies des synthèses
+     * par projet si demandé ; retourne les totaux de chaque version
+     */
+    private static List<CsvReportWriter.VersionTotals> sweep(List<BugVersion> bugs, Path resultsFile, Path rejectsFile,
+                                                             boolean withProjectSummaries) throws Exception {
+        try (CSVWriter writer = new CSVWriter(Files.newBufferedWriter(resultsFile, StandardCharsets.UTF_8));
+             CSVWriter rejectsWriter = new CSVWriter(Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8));
+             ColumnarWriter columnar = binary ? new ColumnarWriter(binaryFile(resultsFile)) : null) {
+            CsvReportWriter csv = new CsvReportWriter(writer).withSummary(summary);
+            csv.writeHeader();
+            ReportSink report = columnar == null ? csv : ReportSink.tee(csv, columnar);
+            rejects = rejectsWriter;
+            rejects.writeNext(new String[]{"project", "version", "file", "reason", "detail"});
+
+            Map<String, Path> buggyCheckouts = new HashMap<>();
+            Map<String, SourceTree> buggyTrees = new HashMap<>();
+
+            // Les checkouts avancent en parallèle pendant que la version précédente est analysée
+            CheckoutScheduler scheduler = new CheckoutScheduler(d4j, checkouts, checkouts)
+                    .withRunMetrics(METRICS)
+                    .withGitSources(gitSources);
+            scheduler.run(bugs, (bug, checkoutPath, tree) -> {
+                if (checkoutPath == null) {
+                    System.err.println("Failed to checkout " + bug.getPid() + "-" + bug.getLabel() + ", skipping.");
+                    return;
+                }
+                if (!diffScoped) {
+                    analyzeVersion(report, threads, cacheDir, scopes, bug.getPid(), bug.getLabel(), checkoutPath, tree);
+                } else if (bug.getVersion().equals("b")) {
+                    // La version fixed suit toujours la buggy dans la file
+                    buggyCheckouts.put(bug.getPid(), checkoutPath);
+                    if (tree != null) buggyTrees.put(bug.getPid(), tree);
+                } else {
+                    Path buggyPath = buggyCheckouts.remove(bug.getPid());
+                    SourceTree buggyTree = buggyTrees.remove(bug.getPid());
+                    if (buggyPath == null) {
+                        System.err.println("Pas de version buggy pour " + bug.getPid() + ", delta ignoré.");
+                        return;
                     }
+                    analyzeDiff(report, d4j, threads, cacheDir, bug, buggyPath, buggyTree, checkoutPath, tree);
                 }
+            });
+            if (withProjectSummaries) csv.writeProjectSummaries();
+            return csv.getCompletedVersions();
+        }
+    }
+
+    /**
+     * Remplit la file (une tâche par version, ou par bug en mode ciblé), lance les workers locaux
+     * puis fusionne leurs sorties. Relancé sur une file existante, il reprend les tâches non terminées.
+     */
+    private static void coordinate(String[] args, Path queueDir, int workers, Path outputDir) throws Exception {
+        WorkQueue queue = new WorkQueue(queueDir);
+        List<List<BugVersion>> tasks = new ArrayList<>();
+        for (BugVersion bug : listBugs(args)) {
+            // Le delta a besoin des deux versions dans la même tâche
+            if (diffScoped && bug.getVersion().equals("f") && !tasks.isEmpty()
+                    && tasks.get(tasks.size() - 1).get(0).getPid().equals(bug.getPid())) {
+                tasks.get(tasks.size() - 1).add(bug);
+            } else {
+                tasks.add(new ArrayList<>(List.of(bug)));
+            }
+        }
+        if (!queue.initialize(tasks)) System.out.println("Reprise de la file " + queueDir + " : " + queue.remaining() + " tâche(s) restante(s)");
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+                    MetricAnalyzerApp.class.getName(), "--worker", queueDir.toString(), "--worker-id", "worker-" + i));
+            command.addAll(workerArgs(args));
+            processes.add(new ProcessBuilder(command).inheritIO().start());
+        }
+        for (Process process : processes) {
+            if (process.waitFor() != 0) System.err.println("Un worker s'est terminé en erreur (code " + process.exitValue() + ")");
+        }
+        if (queue.remaining() > 0) {
+            System.err.println(queue.remaining() + " tâche(s) non terminée(s), relancer le coordinateur pour les reprendre");
+        }
+        merge(queue, outputDir);
+    }
+
+    // Options transmises aux workers : tout sauf celles du coordinateur
+    private static List<String> workerArgs(String[] args) {
+        List<String> forwarded = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--coordinator", "--jfr":
+                    break;
+                case "--workers", "--queue", "--output":
+                    i++;
+                    break;
+                default:
+                    forwarded.add(args[i]);
             }
         }
+        return forwarded;
     }
 
     /**
-     * Checkout du projet/version dans le dossier spécifié
+     * Boucle d'un worker : réclame une tâche, l'analyse, écrit ses sorties partielles, recommence
      */
-    private static boolean checkoutProject(String pid, String version, Path path) throws IOException, InterruptedException {
-        if (Files.exists(path)) return true;
-        System.out.println("Checkout dans " + path);
-        Process process = new ProcessBuilder(
-                DEFECTS4J_PATH, "checkout",
-                "-p", pid.split("-")[0],
-                "-v", pid.split("-")[1] + version,
-                "-w", path.toString()
-        ).inheritIO().start();
-        return process.waitFor() == 0;
+    private static void work(WorkQueue queue) throws Exception {
+        for (WorkQueue.Task task = queue.claim(); task != null; task = queue.claim()) {
+            System.out.println("Tâche " + task.name() + " : " + task.bugs());
+            // Les synthèses par projet ne sont écrites qu'à la fusion, sur les totaux de toutes les tâches
+            List<CsvReportWriter.VersionTotals> totals = sweep(task.bugs(), queue.result(task, ".csv"),
+                    queue.result(task, ".rejects.csv"), false);
+            // Les totaux sont écrits en dernier : leur présence marque une sortie complète
+            PartialResults.writeTotals(queue.result(task, ".totals"), totals);
+            queue.complete(task);
+        }
+    }
+
+    // results.csv -> results.bin
+    private static Path binaryFile(Path resultsFile) {
+        String name = resultsFile.getFileName().toString();
+        return resultsFile.resolveSibling(name.substring(0, name.lastIndexOf('.')) + ".bin");
     }
 
     /**
-     * Retourne un tableau de String pour remplir une ligne CSV
+     * Mode serveur : une JVM qui reste chaude (JIT, parseurs, caches de sources, de métriques et de types)
+     * et analyse à la demande, sur 127.0.0.1 uniquement :
+     * GET /analyze?bug=Math-1&version=b   checkout Defects4J si besoin puis analyse
+     * GET /analyze?path=/chemin/checkout&pid=X&label=Y   checkout déjà présent
+     * Les lignes CSV sont renvoyées au fil de l'analyse (réponse chunked). /health répond "ok",
+     * POST /shutdown arrête le serveur. Les requêtes sont traitées une à la fois.
      */
-    private static String[] toCSVRow(String[] header, Map<String, String> metrics) {
-        String[] row = new String[header.length];
-        for (int i = 0; i < header.length; i++) {
-            row[i] = metrics.getOrDefault(header[i], "");
+    private static void serve(int port, Path outputDir) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        ExecutorService requests = Executors.newSingleThreadExecutor();
+        CountDownLatch stopped = new CountDownLatch(1);
+
+        try (CSVWriter rejectsWriter = new CSVWriter(Files.newBufferedWriter(outputDir.resolve("rejects.csv"),
+                StandardCharsets.UTF_8))) {
+            rejects = rejectsWriter;
+            rejects.writeNext(new String[]{"project", "version", "file", "reason", "detail"});
+
+            server.createContext("/health", exchange -> respond(exchange, 200, "ok\n"));
+            server.createContext("/shutdown", exchange -> {
+                if (!exchange.getRequestMethod().equals("POST")) {
+                    respond(exchange, 405, "POST attendu\n");
+                    return;
+                }
+                respond(exchange, 200, "arrêt\n");
+                stopped.countDown();
+            });
+            server.createContext("/analyze", MetricAnalyzerApp::handleAnalyze);
+            server.setExecutor(requests);
+            server.start();
+            System.out.println("Serveur d'analyse sur http://127.0.0.1:" + server.getAddress().getPort() + "/analyze");
+            stopped.await();
+        } finally {
+            server.stop(0);
+            requests.shutdown();
         }
-        return row;
+    }
+
+    private static void handleAnalyze(HttpExchange exchange) throws IOException {
+        Map<String, String> params = queryParams(exchange.getRequestURI());
+        String pid;
+        String label;
+        Path checkoutPath;
+        try {
+            if (params.containsKey("path")) {
+                checkoutPath = Paths.get(params.get("path")).toAbsolutePath().normalize();
+                pid = params.getOrDefault("pid", checkoutPath.getFileName().toString());
+                label = params.getOrDefault("label", "checkout");
+            } else if (params.containsKey("bug")) {
+                String bugPid = params.get("bug");
+                int dash = bugPid.lastIndexOf('-');
+                BugVersion bug = new BugVersion(bugPid.substring(0, dash), Integer.parseInt(bugPid.substring(dash + 1)),
+                        params.getOrDefault("version", "b"));
+                checkoutPath = bug.checkoutPath(d4j.getProjectsPath());
+                if (!d4j.checkout(bug, checkoutPath)) {
+                    respond(exchange, 502, "Échec du checkout de " + bug + "\n");
+                    return;
+                }
+                pid = bug.getPid();
+                label = bug.getLabel();
+            } else {
+                respond(exchange, 400, "Paramètre bug=Projet-N (et version=b|f) ou path=... attendu\n");
+                return;
+            }
+        } catch (RuntimeException | InterruptedException e) {
+            respond(exchange, 400, "Requête invalide: " + e.getMessage() + "\n");
+            return;
+        }
+        if (!Files.isDirectory(checkoutPath)) {
+            respond(exchange, 404, "Checkout introuvable: " + checkoutPath + "\n");
+            return;
+        }
+
+        // Un checkout peut avoir été remplacé depuis la requête précédente
+        TypeResolver.invalidate(checkoutPath);
+        exchange.getResponseHeaders().set("Content-Type", "text/csv; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (CSVWriter writer = new CSVWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            CsvReportWriter csv = new CsvReportWriter(writer).withSummary(summary);
+            csv.writeHeader();
+            // Chaque fichier analysé part tout de suite vers le client
+            ReportSink streaming = new ReportSink() {
+                @Override
+                public void beginVersion(String versionPid, String version) {
+                    csv.beginVersion(versionPid, version);
+                }
+
+                @Override
+                public void writeClasses(MetricTable classes) throws IOException {
+                    csv.writeClasses(classes);
+                    writer.flush();
+                }
+
+                @Override
+                public void endVersion() throws IOException {
+                    csv.endVersion();
+                }
+            };
+            analyzeVersion(streaming, threads, cacheDir, scopes, pid, label, checkoutPath, null);
+        } catch (IOException e) {
+            // Statut déjà envoyé : le client voit une réponse tronquée
+            System.err.println("Analyse interrompue pour " + checkoutPath + " (" + e + ")");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> queryParams(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        if (uri.getRawQuery() == null) return params;
+        for (String pair : uri.getRawQuery().split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            params.put(key, eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void merge(WorkQueue queue, Path outputDir) throws IOException {
+        List<Path> tasks = new ArrayList<>();
+        for (String name : queue.completedTasks()) tasks.add(queue.getResultsDir().resolve(name));
+        PartialResults.merge(tasks, outputDir.resolve("results.csv"), outputDir.resolve("rejects.csv"), summary);
+        if (binary) PartialResults.mergeBinary(tasks, outputDir.resolve("results.bin"));
+        System.out.println("Fusion de " + tasks.size() + " tâche(s) dans " + outputDir.resolve("results.csv"));
+    }
+
+    /**
+     * Analyse une version déjà checkoutée et écrit ses lignes ainsi que la ligne AVG,
+     * une fois par ensemble de sources demandé (les tests sont suffixés "-tests") ; tree non null :
+     * fichiers lus dans le dépôt git, checkoutPath n'existe pas
+     */
+    private static void analyzeVersion(ReportSink report, int threads, Path cacheDir, List<SourceSet.Scope> scopes,
+                                       String pid, String label, Path checkoutPath, SourceTree tree)
+            throws IOException {
+        System.out.println("Analyse de " + pid + " (" + label + ") dans " + (tree != null ? "le dépôt git" : checkoutPath));
+
+        for (SourceSet.Scope scope : scopes) {
+            AnalysisPipeline pipeline = newPipeline(sources(checkoutPath, scope, tree), checkoutPath, threads, cacheDir);
+            // Réservé pendant l'analyse : deux requêtes --serve simultanées ne partagent pas un graphe
+            TypeGraph typeGraph = null;
+            if (withTypeGraph) {
+                typeGraph = TYPE_GRAPHS.remove(scope);
+                if (typeGraph == null) typeGraph = new TypeGraph();
+                pipeline.withTypeGraph(typeGraph);
+            }
+            // Les lignes sont écrites dès qu'un fichier est analysé, la ligne AVG à la fin de la version
+            String version = scope == SourceSet.Scope.TESTS ? label + "-tests" : label;
+            report.beginVersion(pid, version);
+            try {
+                pipeline.run(report::writeClasses);
+            } finally {
+                if (typeGraph != null) TYPE_GRAPHS.put(scope, typeGraph);
+            }
+            report.endVersion();
+            writeRejects(pid, version, checkoutPath, pipeline.getParseStats());
+        }
+    }
+
+    /**
+     * Analyse ciblée d'un bug : seuls les fichiers des classes modifiées (modified_classes de Defects4J,
+     * ou à défaut les fichiers qui diffèrent entre les deux checkouts) sont parsés dans chaque version,
+     * puis une ligne "delta" (fixed - buggy) est écrite par classe
+     */
+    private static void analyzeDiff(ReportSink report, Defects4J d4j, int threads, Path cacheDir, BugVersion bug,
+                                    Path buggyPath, SourceTree buggyTree, Path fixedPath, SourceTree fixedTree)
+            throws IOException {
+        SourceSet buggySources = sources(buggyPath, SourceSet.Scope.MAIN, buggyTree);
+        SourceSet fixedSources = sources(fixedPath, SourceSet.Scope.MAIN, fixedTree);
+        List<String> modified = d4j.modifiedClasses(bug.getProject(), bug.getBugId());
+        if (modified.isEmpty()) {
+            Set<String> changed = SourceSet.changedFiles(buggySources, fixedSources, sourceCache);
+            System.out.println("Analyse ciblée de " + bug.getPid() + " : " + changed.size() + " fichier(s) différent(s)");
+            buggySources = buggySources.restrictTo(changed);
+            fixedSources = fixedSources.restrictTo(changed);
+        } else {
+            System.out.println("Analyse ciblée de " + bug.getPid() + " : " + modified.size() + " classe(s) modifiée(s)");
+            buggySources = buggySources.restrictToClasses(modified);
+            fixedSources = fixedSources.restrictToClasses(modified);
+        }
+
+        AnalysisPipeline buggyPipeline = newPipeline(buggySources, buggyPath, threads, cacheDir);
+        AnalysisPipeline fixedPipeline = newPipeline(fixedSources, fixedPath, threads, cacheDir);
+        MetricTable buggy = buggyPipeline.run();
+        MetricTable fixed = fixedPipeline.run();
+        writeRejects(bug.getPid(), "buggy", buggyPath, buggyPipeline.getParseStats());
+        writeRejects(bug.getPid(), "fixed", fixedPath, fixedPipeline.getParseStats());
+        writeVersion(report, bug.getPid(), "buggy", buggy);
+        writeVersion(report, bug.getPid(), "fixed", fixed);
+        writeVersion(report, bug.getPid(), "delta", fixed.minus(buggy));
+    }
+
+    private static SourceSet sources(Path checkoutPath, SourceSet.Scope scope, SourceTree tree) throws IOException {
+        return tree != null ? SourceSet.resolve(checkoutPath, scope, tree) : SourceSet.resolve(checkoutPath, scope);
+    }
+
+    /**
+     * Bilan du parse de la version et une ligne par fichier rejeté dans output/rejects.csv
+     */
+    private static void writeRejects(String pid, String version, Path checkoutPath, ParseStats stats)
+            throws IOException {
+        System.out.println("Parse de " + pid + " - " + version + " : " + stats);
+        for (ParseStats.Reject reject : stats.getRejects()) {
+            rejects.writeNext(new String[]{pid, version, checkoutPath.relativize(reject.file()).toString(),
+                    reject.reason().name(), reject.detail()});
+        }
+        rejects.flush();
+    }
+
+    private static void writeVersion(ReportSink report, String pid, String version, MetricTable classes)
+            throws IOException {
+        report.beginVersion(pid, version);
+        report.writeClasses(classes);
+        report.endVersion();
+    }
+
+    /**
+     * Pipeline des six analyseurs : un seul parse par fichier, partagé par tous ; aucun en tier rapide
+     */
+    private static AnalysisPipeline newPipeline(SourceSet sources, Path checkoutPath, int threads, Path cacheDir)
+            throws IOException {
+        Analyzer[] analyzers = tier == AnalysisPipeline.Tier.FAST ? new Analyzer[0] : new Analyzer[] {
+                new dmsAnalyzer(checkoutPath),
+                new JAXAnalyzer(checkoutPath),
+                new ExceptionAnalyzer(checkoutPath),
+                new EncapsulationAnalyzer(checkoutPath),
+                new ImportConflictAnalyzer(checkoutPath),
+                new COMAnalyzer(checkoutPath)
+        };
+        AnalysisPipeline pipeline = new AnalysisPipeline(sources, threads, analyzers)
+                .withClassIndex(CLASS_INDEX)
+                .withLanguageLevel(languageLevel)
+                .withParseBudget(parseTimeoutMillis, maxFileBytes)
+                .withRunMetrics(METRICS)
+                .withSourceCache(sourceCache)
+                .withCharset(charset)
+                .withTier(tier);
+        if (heapBudget != Long.MAX_VALUE) pipeline.withHeapBudget(heapBudget / 2 / Math.max(1, checkouts));
+        TypeResolver resolver = resolveWith != null && analyzers.length > 0 ? typeResolver(checkoutPath) : null;
+        if (resolver != null) pipeline.withTypeResolver(resolver);
+        if (cacheDir != null) {
+            String variant = tier + "/" + SourceScanner.VERSION + "/" + charset.name() + (resolver != null ? "/" + resolver.fingerprint() : "");
+            pipeline.withCache(new MetricCache(cacheDir, List.of(analyzers), variant));
+        }
+        return pipeline;
+    }
+
+    /**
+     * Résolveur du checkout, construit une fois (sources main et tests, classpath Defects4J)
+     * puis partagé par toutes les passes sur ce checkout
+     */
+    private static TypeResolver typeResolver(Path checkoutPath) throws IOException {
+        List<Path> sourceRoots = new ArrayList<>(SourceSet.resolve(checkoutPath, SourceSet.Scope.MAIN).getRoots());
+        sourceRoots.addAll(SourceSet.resolve(checkoutPath, SourceSet.Scope.TESTS).getRoots());
+        try {
+            return TypeResolver.forCheckout(checkoutPath, sourceRoots, () -> resolveWith.compileClasspath(checkoutPath));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Classpath interrompu: " + checkoutPath, e);
+        }
+    }
+
+    /**
+     * Valeur d'une option "--nom valeur" de la ligne de commande, ou la valeur par défaut
+     */
+    private static String option(String[] args, String name, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) return args[i + 1];
+        }
+        return defaultValue;
+    }
+
+    private static boolean hasFlag(String[] args, String name) {
+        return Arrays.asList(args).contains(name);
     }
 
     /**
-     * Fusionne les métriques de plusieurs analyseurs par classe
+     * Liste d'identifiants de bugs, ex. "1-5,7"
      */
-    private static Map<String, Map<String, String>> mergeClassMetrics(Map<String, Map<String, String>>... maps) {
-        Map<String, Map<String, String>> result = new HashMap<>();
-        for (Map<String, Map<String, String>> map : maps) {
-            for (Map.Entry<String, Map<String, String>> entry : map.entrySet()) {
-                result.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).putAll(entry.getValue());
+    private static List<Integer> parseBugIds(String range) {
+        List<Integer> ids = new ArrayList<>();
+        for (String part : range.split(",")) {
+            int dash = part.indexOf('-');
+            if (dash < 0) {
+                ids.add(Integer.parseInt(part.trim()));
+            } else {
+                int from = Integer.parseInt(part.substring(0, dash).trim());
+                int to = Integer.parseInt(part.substring(dash + 1).trim());
+                for (int i = from; i <= to; i++) ids.add(i);
             }
         }
-        return result;
+        return ids;
     }
 }
\ No newline at end of file
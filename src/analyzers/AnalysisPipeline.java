@@ -0,0 +1,543 @@
+package analyzers;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParseException;
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.github.javaparser.Problem;
+import com.github.javaparser.Providers;
+import com.github.javaparser.Token;
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parse chaque fichier .java du SourceSet une seule fois et passe la CompilationUnit
+ * à tous les analyseurs enregistrés. Les fichiers peuvent être répartis sur plusieurs threads.
+ * Les comptages de lignes viennent d'une passe lexicale (SourceScanner), seule exécutée en Tier.FAST.
+ */
+public class AnalysisPipeline {
+    /**
+     * FAST : passe lexicale seule (lignes, ICD, ICC), sans parse ; FULL : parse et analyseurs en plus
+     */
+    public enum Tier { FAST, FULL }
+
+    // JavaParser n'est pas thread-safe : une instance par thread et par niveau de langage
+    // (HashMap et non EnumMap : RAW vaut null dans JavaParser)
+    private static final ThreadLocal<Map<LanguageLevel, JavaParser>> PARSERS = ThreadLocal.withInitial(HashMap::new);
+    // Repli quand le niveau demandé échoue : grammaire la plus large, sans validation
+    private static final LanguageLevel RELAXED_LEVEL = LanguageLevel.RAW;
+    // Heap retenu par octet source pendant l'analyse d'un fichier (AST sans tokens, texte décodé) :
+    // ~26 mesuré sur DecimalFormat.java, contre ~96 avec les tokens
+    private static final int HEAP_BYTES_PER_SOURCE_BYTE = 32;
+
+    private final SourceSet sources;
+    private final int threads;
+    private final List<Analyzer> analyzers;
+    private MetricCache cache;
+    private ClassIndex classIndex = new ClassIndex();
+    private TypeResolver typeResolver;
+    private LanguageLevel languageLevel = LanguageLevel.POPULAR;
+    private long timeoutMillis;
+    private long maxFileBytes = Long.MAX_VALUE;
+    private final ParseStats parseStats = new ParseStats();
+    private RunMetrics metrics = new RunMetrics();
+    // Sans cache partagé, chaque fichier est lu une fois puis oublié
+    private SourceCache sourceCache = new SourceCache(0);
+    private Charset charset = StandardCharsets.UTF_8;
+    private Tier tier = Tier.FULL;
+    private TypeGraph typeGraph;
+    private long heapBudget = Long.MAX_VALUE;
+    // Parses hors budget abandonnés mais encore en cours sur un thread du watchdog
+    private final AtomicInteger runaways = new AtomicInteger();
+
+    // Tout le checkout, hors dossiers de build et de VCS
+    public AnalysisPipeline(Path projectPath, Analyzer... analyzers) throws IOException {
+        this(SourceSet.resolve(projectPath, SourceSet.Scope.ALL), 1, analyzers);
+    }
+
+    public AnalysisPipeline(SourceSet sources, int threads, Analyzer... analyzers) {
+        this.sources = sources;
+        this.threads = Math.max(1, threads);
+        this.analyzers = List.of(analyzers);
+    }
+
+    /**
+     * Active le cache disque : les fichiers déjà vus avec le même contenu ne sont pas reparsés
+     */
+    public AnalysisPipeline withCache(MetricCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Partage le dictionnaire des classes avec d'autres pipelines (ex. pour comparer buggy et fixed)
+     */
+    public AnalysisPipeline withClassIndex(ClassIndex classIndex) {
+        this.classIndex = classIndex;
+        return this;
+    }
+
+    /**
+     * Attache le résolveur de types du checkout à chaque CompilationUnit (voir TypeResolver.of)
+     */
+    public AnalysisPipeline withTypeResolver(TypeResolver typeResolver) {
+        this.typeResolver = typeResolver;
+        return this;
+    }
+
+    /**
+     * Niveau de langage du premier essai de parse ; les fichiers refusés sont retentés en RAW
+     */
+    public AnalysisPipeline withLanguageLevel(LanguageLevel languageLevel) {
+        this.languageLevel = languageLevel;
+        return this;
+    }
+
+    /**
+     * Niveau de langage par son nom, y compris les alias RAW, POPULAR, CURRENT et BLEEDING_EDGE
+     * qui ne sont pas des constantes de l'enum
+     */
+    public static LanguageLevel languageLevel(String name) {
+        switch (name.toUpperCase(Locale.ROOT)) {
+            case "RAW":
+                return LanguageLevel.RAW;
+            case "POPULAR":
+                return LanguageLevel.POPULAR;
+            case "CURRENT":
+                return LanguageLevel.CURRENT;
+            case "BLEEDING_EDGE":
+                return LanguageLevel.BLEEDING_EDGE;
+            default:
+                return LanguageLevel.valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Budget par fichier : temps de parse et d'analyse (0 = illimité) et taille maximale.
+     * Un fichier hors budget est rejeté au lieu de bloquer le run.
+     */
+    public AnalysisPipeline withParseBudget(long timeoutMillis, long maxFileBytes) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxFileBytes = maxFileBytes;
+        return this;
+    }
+
+    /**
+     * Partage l'instrumentation du run (temps et allocation par étape) entre plusieurs pipelines
+     */
+    public AnalysisPipeline withRunMetrics(RunMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Encodage des sources, UTF-8 par défaut ; un fichier invalide dans cet encodage est lu en ISO-8859-1
+     */
+    public AnalysisPipeline withCharset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * Partage les fichiers déjà lus (ex. par la comparaison buggy/fixed) au lieu de les relire
+     */
+    public AnalysisPipeline withSourceCache(SourceCache sourceCache) {
+        this.sourceCache = sourceCache;
+        return this;
+    }
+
+    /**
+     * En FAST les analyseurs sont ignorés : aucune CompilationUnit n'est construite
+     */
+    public AnalysisPipeline withTier(Tier tier) {
+        this.tier = tier;
+        return this;
+    }
+
+    /**
+     * Alimente le graphe des types avec chaque fichier et ajoute ses métriques (DIT, CBO...) aux classes.
+     * Les lignes ne sont émises qu'en fin de run, une fois le graphe complet ; au-delà de la moitié du budget
+     * de heap (withHeapBudget), elles attendent sur disque. Le même graphe peut resservir à la version
+     * suivante : seuls les fichiers modifiés y sont remplacés.
+     */
+    public AnalysisPipeline withTypeGraph(TypeGraph typeGraph) {
+        this.typeGraph = typeGraph;
+        return this;
+    }
+
+    /**
+     * Heap visé pour les fichiers en cours d'analyse : la fenêtre parallèle se réduit quand les fichiers
+     * en vol dépassent le budget (un fichier plus gros que le budget est analysé seul)
+     */
+    public AnalysisPipeline withHeapBudget(long bytes) {
+        this.heapBudget = bytes;
+        return this;
+    }
+
+    public ParseStats getParseStats() {
+        return parseStats;
+    }
+
+    // Retourne les métriques de tous les analyseurs fusionnées par classe
+    public MetricTable run() throws IOException {
+        MetricTable result = new MetricTable(classIndex);
+        run(result::merge);
+        return result;
+    }
+
+    /**
+     * Analyse le projet en flux : les classes de chaque fichier sont transmises au listener
+     * dans l'ordre des fichiers, sans garder le reste du projet en mémoire
+     */
+    public void run(ClassMetricsListener listener) throws IOException {
+        RunMetrics.Span discovery = metrics.start("discovery");
+        List<Path> javaFiles = sources.listJavaFiles();
+        discovery.stop();
+        // Threads démons : un parse qui ne rend pas la main n'empêche pas la JVM de terminer
+        ExecutorService watchdog = timeoutMillis > 0 ? Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "parse-budget");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        try {
+            if (typeGraph != null && tier == Tier.FULL) {
+                runWithTypeGraph(listener, javaFiles, watchdog);
+            } else {
+                run(listener, javaFiles, watchdog);
+            }
+        } finally {
+            if (watchdog != null) watchdog.shutdownNow();
+        }
+    }
+
+    /**
+     * Tables gardées jusqu'à la fin du run, complétées par le graphe puis émises dans l'ordre. Avec un budget
+     * de heap, elles y sont comptées : au-delà de la moitié du budget, les suivantes passent sur disque.
+     */
+    private void runWithTypeGraph(ClassMetricsListener listener, List<Path> javaFiles, ExecutorService watchdog)
+            throws IOException {
+        List<String> relativePaths = new ArrayList<>(javaFiles.size());
+        for (Path javaFile : javaFiles) relativePaths.add(sources.relativePath(javaFile));
+        typeGraph.retainFiles(relativePaths);
+
+        try (BufferedTables buffered = new BufferedTables(heapBudget / 2)) {
+            run(buffered::add, javaFiles, watchdog);
+            buffered.replay(classes -> {
+                RunMetrics.Span graph = metrics.start("type-graph");
+                typeGraph.putMetrics(classes);
+                graph.stop();
+                listener.onClasses(classes);
+            });
+        }
+    }
+
+    /**
+     * Tables d'un run avec graphe : en mémoire jusqu'à maxBytes (estimés), puis dans un fichier temporaire
+     * au format du MetricCache, relues dans l'ordre d'ajout
+     */
+    private final class BufferedTables implements Closeable {
+        private final long maxBytes;
+        private final List<MetricTable> inMemory = new ArrayList<>();
+        private long bytes;
+        private Path spillFile;
+        private DataOutputStream spill;
+        private int spilled;
+
+        BufferedTables(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        void add(MetricTable classes) throws IOException {
+            // Une ligne : une valeur par métrique, plus le nom et l'entrée de l'index
+            bytes += classes.size() * (Metric.count() * 8L + 128);
+            if (spill == null && bytes <= maxBytes) {
+                inMemory.add(classes);
+                return;
+            }
+            if (spill == null) {
+                spillFile = Files.createTempFile("metrics-graph", ".bin");
+                spill = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile)));
+            }
+            MetricCache.writeTable(spill, classes);
+            spilled++;
+        }
+
+        void replay(ClassMetricsListener listener) throws IOException {
+            for (MetricTable classes : inMemory) listener.onClasses(classes);
+            inMemory.clear();
+            if (spill == null) return;
+            spill.close();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(spillFile)))) {
+                for (int i = 0; i < spilled; i++) listener.onClasses(MetricCache.readTable(in, classIndex));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (spill != null) spill.close();
+            if (spillFile != null) Files.deleteIfExists(spillFile);
+        }
+    }
+
+    private void run(ClassMetricsListener listener, List<Path> javaFiles, ExecutorService watchdog) throws IOException {
+        if (threads == 1) {
+            for (Path javaFile : javaFiles) {
+                emit(listener, analyzeFile(javaFile, watchdog));
+            }
+            return;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            // Fenêtre bornée de fichiers en vol, émis dans l'ordre : sortie déterministe, mémoire constante
+            Deque<Future<MetricTable>> window = new ArrayDeque<>();
+            Deque<Long> windowHeap = new ArrayDeque<>();
+            long inFlightHeap = 0;
+            int maxInFlight = threads * 4;
+            for (Path javaFile : javaFiles) {
+                long heap = heapBudget == Long.MAX_VALUE ? 0 : sources.size(javaFile) * HEAP_BYTES_PER_SOURCE_BYTE;
+                while (!window.isEmpty() && (window.size() >= maxInFlight || inFlightHeap + heap > heapBudget)) {
+                    emit(listener, window.poll().get());
+                    inFlightHeap -= windowHeap.poll();
+                }
+                window.add(pool.submit(() -> analyzeFile(javaFile, watchdog)));
+                windowHeap.add(heap);
+                inFlightHeap += heap;
+            }
+            while (!window.isEmpty()) {
+                emit(listener, window.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Analyse interrompue: " + sources.getRoots(), e);
+        } catch (ExecutionException e) {
+            throw new IOException("Erreur lors de l'analyse de " + sources.getRoots(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Analyse un fichier dans son budget de temps ; au-delà le fichier est rejeté et le run continue.
+     * Les écritures partagées (cache, graphe, statistiques) ne sont publiées qu'ici, une fois le résultat
+     * accepté : un parse hors budget qui finit plus tard n'écrit rien.
+     */
+    private MetricTable analyzeFile(Path javaFile, ExecutorService watchdog) {
+        parseStats.fileSeen();
+        List<Runnable> writes = new ArrayList<>();
+        if (watchdog == null) return publish(analyzeFile(javaFile, writes), writes);
+
+        // Threads bornés : au-delà de deux parses abandonnés par worker, les fichiers sont rejetés sans être lancés
+        if (runaways.get() >= threads * 2) {
+            parseStats.reject(javaFile, ParseStats.Reason.TIMEOUT, "trop de parses hors budget encore actifs");
+            return rejected(javaFile);
+        }
+        // Posé par le premier qui conclut : le thread d'analyse en finissant, ou l'appelant en abandonnant
+        AtomicBoolean settled = new AtomicBoolean();
+        Future<MetricTable> result = watchdog.submit(() -> {
+            try {
+                return analyzeFile(javaFile, writes);
+            } finally {
+                if (!settled.compareAndSet(false, true)) runaways.decrementAndGet();
+            }
+        });
+        try {
+            // get() rend visibles les écritures du thread d'analyse dans writes
+            return publish(result.get(timeoutMillis, TimeUnit.MILLISECONDS), writes);
+        } catch (TimeoutException e) {
+            // JavaParser ne teste pas l'interruption : le thread démon finit seul, writes est abandonné
+            result.cancel(true);
+            if (settled.compareAndSet(false, true)) runaways.incrementAndGet();
+            parseStats.reject(javaFile, ParseStats.Reason.TIMEOUT, "plus de " + timeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            parseStats.reject(javaFile, ParseStats.Reason.ERROR, "interrompu");
+        } catch (ExecutionException e) {
+            parseStats.reject(javaFile, ParseStats.Reason.ERROR, String.valueOf(e.getCause()));
+        }
+        return rejected(javaFile);
+    }
+
+    // Un fichier rejeté ne contribue plus au graphe, même s'il y figurait pour la version précédente
+    private MetricTable rejected(Path javaFile) {
+        if (typeGraph != null && tier == Tier.FULL) typeGraph.remove(sources.relativePath(javaFile));
+        return new MetricTable(classIndex);
+    }
+
+    private static MetricTable publish(MetricTable fileMetrics, List<Runnable> writes) {
+        for (Runnable write : writes) write.run();
+        return fileMetrics;
+    }
+
+    /**
+     * Parse un fichier et collecte les métriques de tous les analyseurs dans un tampon local ;
+     * les effets sur l'état partagé sont ajoutés à writes, publiés par l'appelant
+     */
+    private MetricTable analyzeFile(Path javaFile, List<Runnable> writes) {
+        MetricTable fileMetrics = new MetricTable(classIndex);
+        boolean withGraph = typeGraph != null && tier == Tier.FULL;
+        String relativePath = withGraph ? sources.relativePath(javaFile) : null;
+        try {
+            long size = sources.size(javaFile);
+            if (size > maxFileBytes) {
+                writes.add(() -> parseStats.reject(javaFile, ParseStats.Reason.SIZE, size + " octets"));
+                if (withGraph) writes.add(() -> typeGraph.remove(relativePath));
+                return fileMetrics;
+            }
+
+            RunMetrics.Span read = metrics.start("read");
+            SourceFile source = sources.read(javaFile, sourceCache);
+            read.stop();
+            metrics.fileRead(source.size());
+
+            // Contribution au graphe à refaire seulement si le fichier a changé depuis la version précédente
+            byte[] digest = withGraph ? TypeGraph.digest(source.bytes()) : null;
+            if (withGraph && typeGraph.isCurrent(relativePath, digest)) withGraph = false;
+
+            String key = null;
+            if (cache != null) {
+                RunMetrics.Span lookup = metrics.start("cache");
+                key = cache.key(javaFile.getFileName().toString(), source.bytes());
+                MetricTable cached = cache.get(key, classIndex);
+                TypeGraph.FileTypes types = cached != null && withGraph ? cache.getTypes(key) : null;
+                lookup.stop();
+                if (cached != null && (!withGraph || types != null)) {
+                    metrics.cacheHit();
+                    if (types != null) writes.add(() -> typeGraph.update(relativePath, digest, types));
+                    return cached;
+                }
+            }
+
+            // Décodé une fois pour la passe lexicale et le parse, puis libéré avec l'analyse du fichier
+            String text = source.text(charset);
+            RunMetrics.Span scan = metrics.start("scan");
+            SourceScanner.Result lines = SourceScanner.scan(text);
+            scan.stop();
+            if (tier == Tier.FAST) {
+                int classId = fileMetrics.classId(ClassNames.primary(lines.packageName(), javaFile));
+                lines.putLines(fileMetrics, classId);
+                lines.putImports(fileMetrics, classId);
+            } else {
+                RunMetrics.Span parse = metrics.start("parse");
+                CompilationUnit cu = parse(javaFile, text, writes);
+                parse.stop();
+                if (cu == null) {
+                    if (withGraph) writes.add(() -> typeGraph.remove(relativePath));
+                    return fileMetrics;
+                }
+                visit(cu, lines, fileMetrics);
+                lines.putLines(fileMetrics, fileMetrics.classId(ClassNames.primary(cu)));
+                if (withGraph) {
+                    RunMetrics.Span collect = metrics.start("type-graph");
+                    TypeGraph.FileTypes types = TypeGraph.collect(cu);
+                    collect.stop();
+                    String typesKey = key;
+                    writes.add(() -> {
+                        typeGraph.update(relativePath, digest, types);
+                        if (typesKey != null) cache.putTypes(typesKey, types);
+                    });
+                }
+            }
+            if (key != null) {
+                String metricsKey = key;
+                writes.add(() -> {
+                    RunMetrics.Span store = metrics.start("cache");
+                    cache.put(metricsKey, fileMetrics);
+                    store.stop();
+                });
+            }
+        } catch (Exception e) {
+            System.err.println("Erreur lors de l'analyse du fichier: " + javaFile + " (" + e + ")");
+            writes.add(() -> parseStats.reject(javaFile, ParseStats.Reason.ERROR, e.toString()));
+            if (withGraph) writes.add(() -> typeGraph.remove(relativePath));
+            return new MetricTable(classIndex);
+        }
+        return fileMetrics;
+    }
+
+    /**
+     * Parse au niveau de langage demandé puis, en cas d'échec, en mode relâché ; null si les deux échouent
+     */
+    private CompilationUnit parse(Path javaFile, String content, List<Runnable> writes) {
+        ParseResult<CompilationUnit> result = parse(languageLevel, content);
+        if (!isUsable(result) && languageLevel != RELAXED_LEVEL) {
+            ParseResult<CompilationUnit> relaxed = parse(RELAXED_LEVEL, content);
+            if (isUsable(relaxed)) {
+                writes.add(parseStats::relaxed);
+                result = relaxed;
+            }
+        }
+        if (!isUsable(result)) {
+            String detail = result.getProblems().isEmpty() ? "" : describe(result.getProblem(0));
+            writes.add(() -> parseStats.reject(javaFile, ParseStats.Reason.SYNTAX, detail));
+            return null;
+        }
+        CompilationUnit cu = result.getResult().get();
+        // Commentaires gardés seulement si un analyseur les lit ; jamais attribués aux nœuds
+        if (analyzers.stream().anyMatch(Analyzer::usesComments)) SourceComments.attach(cu, result);
+        cu.setStorage(javaFile, charset);
+        return cu;
+    }
+
+    // Le texte est décodé une seule fois, même si le parse est retenté
+    private static ParseResult<CompilationUnit> parse(LanguageLevel level, String content) {
+        JavaParser parser = PARSERS.get().computeIfAbsent(level, l -> new JavaParser(parserConfiguration(l)));
+        return parser.parse(ParseStart.COMPILATION_UNIT, Providers.provider(content));
+    }
+
+    /**
+     * Configuration du parse des analyses, aussi utilisée par les benchmarks
+     */
+    public static ParserConfiguration parserConfiguration(LanguageLevel level) {
+        return new ParserConfiguration()
+                .setLanguageLevel(level)
+                // Profil léger : ni tokens (pas de réécriture du source), ni attribution des commentaires
+                .setStoreTokens(false)
+                .setAttributeComments(false);
+    }
+
+    // Sans tokens stockés, le Problem n'a plus de position : on la reprend dans l'exception du parseur
+    private static String describe(Problem problem) {
+        if (problem.getLocation().isEmpty() && problem.getCause().orElse(null) instanceof ParseException) {
+            Token token = ((ParseException) problem.getCause().get()).currentToken;
+            if (token != null && token.next != null) {
+                return "(line " + token.next.beginLine + ",col " + token.next.beginColumn + ") " + problem.getVerboseMessage();
+            }
+        }
+        return problem.getVerboseMessage();
+    }
+
+    private static boolean isUsable(ParseResult<CompilationUnit> result) {
+        return result.isSuccessful() && result.getResult().isPresent();
+    }
+
+    // Passe la CompilationUnit à chaque analyseur
+    private void visit(CompilationUnit cu, SourceScanner.Result lines, MetricSink sink) {
+        if (typeResolver != null) cu.setData(TypeResolver.KEY, typeResolver);
+        cu.setData(SourceScanner.KEY, lines);
+        for (Analyzer analyzer : analyzers) {
+            RunMetrics.Span span = metrics.start(analyzer.getClass().getSimpleName());
+            analyzer.visit(cu, sink);
+            span.stop();
+        }
+    }
+
+    private void emit(ClassMetricsListener listener, MetricTable fileMetrics) throws IOException {
+        if (fileMetrics.size() == 0) return;
+        RunMetrics.Span report = metrics.start("report");
+        listener.onClasses(fileMetrics);
+        report.stop();
+        metrics.classesEmitted(fileMetrics.size());
+    }
+}
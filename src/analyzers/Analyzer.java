@@ -0,0 +1,22 @@
+package analyzers;
+
+import com.github.javaparser.ast.CompilationUnit;
+
+/**
+ * Analyseur branché sur le pipeline : il reçoit chaque CompilationUnit déjà parsée
+ * et publie ses métriques dans le sink, sans jamais relire ni reparser le fichier.
+ * Les implémentations doivent rester sans état : visit peut être appelé depuis plusieurs threads.
+ */
+public interface Analyzer {
+    void visit(CompilationUnit cu, MetricSink sink);
+
+    // À incrémenter quand le calcul d'une métrique change : invalide les entrées du MetricCache
+    default int version() {
+        return 1;
+    }
+
+    // Vrai si visit lit les commentaires (via SourceComments.of) : sinon le pipeline ne les garde pas
+    default boolean usesComments() {
+        return false;
+    }
+}
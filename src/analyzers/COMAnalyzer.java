@@ -1,91 +1,204 @@
 package analyzers;
 
-import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.utils.SourceRoot;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
 
-public class COMAnalyzer {
+public class COMAnalyzer implements Analyzer {
     private final Path projectPath;
 
     public COMAnalyzer(Path projectPath) {
         this.projectPath = projectPath;
     }
 
-    // Retourne un Map<ClassName, Map<metric, value>>
-    public Map<String, Map<String, String>> analyze() throws IOException {
-        Map<String, Map<String, String>> result = new HashMap<>();
-
-        SourceRoot sourceRoot = new SourceRoot(projectPath.resolve("src"));
-        List<ParseResult<CompilationUnit>> parseResults = sourceRoot.tryToParse();
-
-        for (ParseResult<CompilationUnit> parseResult : parseResults) {
-            if (!parseResult.isSuccessful() || !parseResult.getResult().isPresent()) continue;
-            CompilationUnit cu = parseResult.getResult().get();
+    // Retourne les métriques par classe
+    public MetricTable analyze() throws IOException {
+        return new AnalysisPipeline(projectPath, this).run();
+    }
 
-            List<ClassOrInterfaceDeclaration> classes = cu.findAll(ClassOrInterfaceDeclaration.class);
-            for (ClassOrInterfaceDeclaration clazz : classes) {
-                if (clazz.isInterface()) continue; // Ignore interfaces
+    @Override
+    public int version() {
+        return 2;
+    }
 
-                double cohesionRate = computeCohesionRate(clazz);
+    @Override
+    public void visit(CompilationUnit cu, MetricSink sink) {
+        List<ClassOrInterfaceDeclaration> classes = cu.findAll(ClassOrInterfaceDeclaration.class);
+        for (ClassOrInterfaceDeclaration clazz : classes) {
+            if (clazz.isInterface()) continue; // Ignore interfaces
 
-                Map<String, String> metrics = new HashMap<>();
-                metrics.put("CohesionRate", String.format(Locale.US, "%.4f", cohesionRate));
-                result.put(clazz.getNameAsString(), metrics);
-            }
+            int classId = sink.classId(ClassNames.of(clazz));
+            Cohesion cohesion = computeCohesion(clazz);
+            sink.put(classId, Metric.COHESION_RATE, cohesion.rate);
+            sink.put(classId, Metric.LCOM1, cohesion.lcom1);
+            sink.put(classId, Metric.LCOM2, cohesion.lcom2);
+            sink.put(classId, Metric.LCOM3, cohesion.lcom3);
+            sink.put(classId, Metric.LCOM4, cohesion.lcom4);
         }
-        return result;
     }
 
-    // Calcule cohesionRate = (nb méthodes avec au moins un attribut en commun avec une autre) / (nb total de méthodes)
-    private double computeCohesionRate(ClassOrInterfaceDeclaration clazz) {
-        List<String> fieldNames = new ArrayList<>();
+    private static final class Cohesion {
+        double rate;
+        long lcom1;
+        long lcom2;
+        int lcom3;
+        int lcom4;
+    }
+
+    /**
+     * cohesionRate = (nb méthodes avec au moins un attribut en commun avec une autre) / (nb total de méthodes)
+     * LCOM1 = paires de méthodes sans attribut commun (P), LCOM2 = max(P - Q, 0),
+     * LCOM3 = composantes connexes méthodes/attributs, LCOM4 = LCOM3 en ajoutant les appels entre méthodes
+     */
+    private Cohesion computeCohesion(ClassOrInterfaceDeclaration clazz) {
+        Cohesion cohesion = new Cohesion();
+
+        Map<String, Integer> fieldIndex = new HashMap<>();
         for (FieldDeclaration field : clazz.getFields()) {
-            field.getVariables().forEach(var -> fieldNames.add(var.getNameAsString()));
+            field.getVariables().forEach(var -> fieldIndex.putIfAbsent(var.getNameAsString(), fieldIndex.size()));
         }
 
-        List<MethodDeclaration> methods = clazz.getMethods();
         // On ignore les méthodes sans corps (abstract, interface, etc.)
         List<MethodDeclaration> realMethods = new ArrayList<>();
-        for (MethodDeclaration m : methods) {
-            if (m.getBody().isPresent()) realMethods.add(m);
+        Map<String, List<Integer>> methodsByName = new HashMap<>();
+        for (MethodDeclaration m : clazz.getMethods()) {
+            if (m.getBody().isEmpty()) continue;
+            methodsByName.computeIfAbsent(m.getNameAsString(), k -> new ArrayList<>()).add(realMethods.size());
+            realMethods.add(m);
         }
         int n = realMethods.size();
-        if (n == 0) return 1.0; // convention : classe sans méthode = 100% cohésive
-
-        // Pour chaque méthode, liste des attributs accédés
-        List<Set<String>> methodFields = new ArrayList<>();
-        for (MethodDeclaration m : realMethods) {
-            Set<String> accessed = new HashSet<>();
-            for (String field : fieldNames) {
-                if (m.toString().contains(field)) { // naïf mais efficace
-                    accessed.add(field);
-                }
+        if (n == 0) {
+            cohesion.rate = 1.0; // convention : classe sans méthode = 100% cohésive
+            return cohesion;
+        }
+
+        // Un seul parcours par méthode : attributs accédés (BitSet) et appels vers les autres méthodes
+        BitSet[] methodFields = new BitSet[n];
+        List<int[]> calls = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            MemberAccessVisitor visitor = new MemberAccessVisitor(fieldIndex, methodsByName, realMethods.get(i));
+            realMethods.get(i).accept(visitor, null);
+            methodFields[i] = visitor.fields;
+            for (int callee : visitor.callees) {
+                if (callee != i) calls.add(new int[]{i, callee});
+            }
+        }
+
+        // Listes inversées attribut -> méthodes qui l'utilisent
+        BitSet[] fieldMethods = new BitSet[fieldIndex.size()];
+        for (int f = 0; f < fieldMethods.length; f++) fieldMethods[f] = new BitSet(n);
+        for (int i = 0; i < n; i++) {
+            for (int f = methodFields[i].nextSetBit(0); f >= 0; f = methodFields[i].nextSetBit(f + 1)) {
+                fieldMethods[f].set(i);
             }
-            methodFields.add(accessed);
         }
 
-        // Compte le nombre de méthodes qui partagent au moins un attribut avec au moins une autre
         int methodsWithCommonField = 0;
+        long sharingPairs = 0;
         for (int i = 0; i < n; i++) {
-            boolean sharesField = false;
-            for (int j = 0; j < n; j++) {
-                if (i == j) continue;
-                Set<String> intersection = new HashSet<>(methodFields.get(i));
-                intersection.retainAll(methodFields.get(j));
-                if (!intersection.isEmpty()) {
-                    sharesField = true;
-                    break;
-                }
+            BitSet neighbours = new BitSet(n);
+            for (int f = methodFields[i].nextSetBit(0); f >= 0; f = methodFields[i].nextSetBit(f + 1)) {
+                neighbours.or(fieldMethods[f]);
+            }
+            neighbours.clear(i);
+            if (!neighbours.isEmpty()) methodsWithCommonField++;
+            sharingPairs += neighbours.cardinality();
+        }
+        long q = sharingPairs / 2;
+        long p = (long) n * (n - 1) / 2 - q;
+
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        for (BitSet users : fieldMethods) {
+            int first = users.nextSetBit(0);
+            for (int i = users.nextSetBit(first + 1); first >= 0 && i >= 0; i = users.nextSetBit(i + 1)) {
+                union(parent, first, i);
+            }
+        }
+        int componentsByFields = components(parent);
+        for (int[] call : calls) {
+            union(parent, call[0], call[1]);
+        }
+
+        cohesion.rate = (double) methodsWithCommonField / n;
+        cohesion.lcom1 = p;
+        cohesion.lcom2 = Math.max(p - q, 0);
+        cohesion.lcom3 = componentsByFields;
+        cohesion.lcom4 = components(parent);
+        return cohesion;
+    }
+
+    /**
+     * Attributs de la classe lus ou écrits par une méthode (x ou this.x, hors paramètres homonymes)
+     * et méthodes de la classe qu'elle appelle (m() ou this.m())
+     */
+    private static final class MemberAccessVisitor extends VoidVisitorAdapter<Void> {
+        final BitSet fields = new BitSet();
+        final Set<Integer> callees = new HashSet<>();
+        private final Map<String, Integer> fieldIndex;
+        private final Map<String, List<Integer>> methodsByName;
+        private final Set<String> parameters = new HashSet<>();
+
+        MemberAccessVisitor(Map<String, Integer> fieldIndex, Map<String, List<Integer>> methodsByName,
+                            MethodDeclaration method) {
+            this.fieldIndex = fieldIndex;
+            this.methodsByName = methodsByName;
+            for (Parameter parameter : method.getParameters()) parameters.add(parameter.getNameAsString());
+        }
+
+        @Override
+        public void visit(NameExpr name, Void arg) {
+            String identifier = name.getNameAsString();
+            Integer field = fieldIndex.get(identifier);
+            if (field != null && !parameters.contains(identifier)) fields.set(field);
+        }
+
+        @Override
+        public void visit(FieldAccessExpr access, Void arg) {
+            if (access.getScope().isThisExpr()) {
+                Integer field = fieldIndex.get(access.getNameAsString());
+                if (field != null) fields.set(field);
+            }
+            super.visit(access, arg);
+        }
+
+        @Override
+        public void visit(MethodCallExpr call, Void arg) {
+            if (call.getScope().isEmpty() || call.getScope().get().isThisExpr()) {
+                List<Integer> targets = methodsByName.get(call.getNameAsString());
+                if (targets != null) callees.addAll(targets);
             }
-            if (sharesField) methodsWithCommonField++;
+            super.visit(call, arg);
+        }
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        parent[find(parent, a)] = find(parent, b);
+    }
+
+    private static int components(int[] parent) {
+        int count = 0;
+        for (int i = 0; i < parent.length; i++) {
+            if (find(parent, i) == i) count++;
         }
-        return (double) methodsWithCommonField / n;
+        return count;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package analyzers;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionnaire des noms de classes qualifiés : chaque nom est haché une seule fois et reçoit
+ * un identifiant entier compact, utilisé ensuite pour indexer les tableaux de MetricTable.
+ * Thread-safe, partagé par tous les fichiers (et toutes les versions) d'une exécution.
+ */
+public final class ClassIndex {
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[256];
+    private int size;
+
+    public int id(String qualifiedName) {
+        Integer id = ids.get(qualifiedName);
+        if (id != null) return id;
+        synchronized (this) {
+            id = ids.get(qualifiedName);
+            if (id != null) return id;
+            if (size == names.length) names = Arrays.copyOf(names, size * 2);
+            names[size] = qualifiedName;
+            ids.put(qualifiedName, size);
+            return size++;
+        }
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,10 @@
+package analyzers;
+
+import java.io.IOException;
+
+/**
+ * Reçoit les métriques complètes des classes d'un fichier dès que celui-ci a été analysé.
+ */
+public interface ClassMetricsListener {
+    void onClasses(MetricTable classes) throws IOException;
+}
@@ -0,0 +1,47 @@
+package analyzers;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.TypeDeclaration;
+
+import java.nio.file.Path;
+
+/**
+ * Identité canonique des classes : nom pleinement qualifié, classes imbriquées comprises
+ * (ex. "org.foo.Outer.Inner"), pour que deux classes homonymes ne se confondent jamais.
+ */
+public final class ClassNames {
+    private ClassNames() {
+    }
+
+    public static String of(TypeDeclaration<?> type) {
+        return type.getFullyQualifiedName().orElseGet(() -> localName(type));
+    }
+
+    /**
+     * Classe principale du fichier, pour les métriques calculées sur toute la CompilationUnit
+     */
+    public static String primary(CompilationUnit cu) {
+        String simpleName = cu.getPrimaryTypeName()
+                .orElseGet(() -> cu.getTypes().isEmpty() ? "UnknownClass" : cu.getType(0).getNameAsString());
+        return cu.getPackageDeclaration()
+                .map(pkg -> pkg.getNameAsString() + "." + simpleName)
+                .orElse(simpleName);
+    }
+
+    /**
+     * Même nom que primary(cu) sans parser le fichier : package déclaré et nom du fichier
+     */
+    public static String primary(String packageName, Path javaFile) {
+        String fileName = javaFile.getFileName().toString();
+        String simpleName = fileName.endsWith(".java") ? fileName.substring(0, fileName.length() - 5) : fileName;
+        return packageName == null || packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+
+    // Classe locale à une méthode : pas de nom qualifié, on la rattache à la classe englobante
+    @SuppressWarnings("unchecked")
+    private static String localName(TypeDeclaration<?> type) {
+        return type.findAncestor(TypeDeclaration.class)
+                .map(enclosing -> of((TypeDeclaration<?>) enclosing) + "$" + type.getNameAsString())
+                .orElse(type.getNameAsString());
+    }
+}
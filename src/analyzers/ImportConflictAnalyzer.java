@@ -1,100 +1,280 @@
 package analyzers;
 
-import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.ImportDeclaration;
-import com.github.javaparser.ast.body.TypeDeclaration;
-import com.github.javaparser.utils.SourceRoot;
+import com.github.javaparser.ast.PackageDeclaration;
+import com.github.javaparser.ast.body.*;
+import com.github.javaparser.ast.comments.Comment;
+import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class ImportConflictAnalyzer implements Analyzer {
+    // {@link Foo}, {@linkplain Foo#bar}, @see Foo, @throws FooException dans la Javadoc
+    private static final Pattern JAVADOC_REFERENCE =
+            Pattern.compile("(?:\\{@link(?:plain)?|@see|@throws|@exception)\\s+([\\w.$#]+)");
+
+    // Types de java.lang utilisables sans import
+    private static final Set<String> JAVA_LANG_TYPES = Set.of(
+            "Object", "String", "StringBuilder", "StringBuffer", "Class", "ClassLoader", "System", "Math",
+            "StrictMath", "Runtime", "Thread", "ThreadLocal", "Runnable", "Iterable", "Comparable", "Cloneable",
+            "CharSequence", "AutoCloseable", "Boolean", "Byte", "Character", "Short", "Integer", "Long",
+            "Float", "Double", "Number", "Void", "Enum", "Record", "Process", "ProcessBuilder",
+            "Throwable", "Exception", "Error", "RuntimeException", "NullPointerException",
+            "IllegalArgumentException", "IllegalStateException", "IndexOutOfBoundsException",
+            "ArrayIndexOutOfBoundsException", "StringIndexOutOfBoundsException", "ClassCastException",
+            "ArithmeticException", "ArrayStoreException", "UnsupportedOperationException",
+            "NumberFormatException", "CloneNotSupportedException", "InterruptedException",
+            "IllegalAccessException", "InstantiationException", "ClassNotFoundException",
+            "NoSuchFieldException", "NoSuchMethodException", "SecurityException", "ReflectiveOperationException",
+            "IllegalMonitorStateException", "NegativeArraySizeException", "AssertionError", "OutOfMemoryError",
+            "StackOverflowError", "LinkageError", "ExceptionInInitializerError", "NoClassDefFoundError",
+            "Override", "Deprecated", "SuppressWarnings", "SafeVarargs", "FunctionalInterface"
+    );
 
-public class ImportConflictAnalyzer {
     private final Path projectPath;
 
     public ImportConflictAnalyzer(Path projectPath) {
         this.projectPath = projectPath;
     }
 
-    public Map<String, Map<String, String>> analyze() throws IOException {
-        Map<String, Map<String, String>> result = new HashMap<>();
-        SourceRoot sourceRoot = new SourceRoot(projectPath.resolve("src"));
-        List<ParseResult<CompilationUnit>> parseResults = sourceRoot.tryToParse();
-
-        for (ParseResult<CompilationUnit> parseResult : parseResults) {
-            if (!parseResult.isSuccessful() || parseResult.getResult().isEmpty()) continue;
-
-            CompilationUnit cu = parseResult.getResult().get();
-            String className = cu.getPrimaryTypeName().orElse("UnknownClass");
-            Map<String, String> metrics = new HashMap<>();
-
-            // Collect all import declarations
-            List<ImportDeclaration> imports = cu.getImports();
-
-            // Map for import conflicts: classSimpleName -> set of packages
-            Map<String, Set<String>> importMap = new HashMap<>();
-            // Count duplicate imports
-            Map<String, Integer> importCount = new HashMap<>();
-            // Set for all imported qualified names
-            Set<String> importQualifiedNames = new HashSet<>();
-            // Set for all simple imported class names
-            Set<String> importedClassNames = new HashSet<>();
-
-            int icd = 0; // Importations en double
-            int icc = 0; // Importations conflictuelles
-
-            for (ImportDeclaration importDecl : imports) {
-                if (importDecl.isAsterisk()) continue; // ignore star imports for this metric
-
-                String fullName = importDecl.getNameAsString();
-                String classShortName = getClassName(fullName);
-                String packageName = getPackageName(fullName);
-                String importKey = fullName + (importDecl.isStatic() ? " static" : "");
-
-                // For double imports (ICD)
-                if (importQualifiedNames.contains(importKey)) {
-                    icd++;
-                } else {
-                    importQualifiedNames.add(importKey);
-                }
+    public MetricTable analyze() throws IOException {
+        return new AnalysisPipeline(projectPath, this).run();
+    }
+
+    @Override
+    public int version() {
+        return 2;
+    }
+
+    // Références Javadoc comptées dans ICU
+    @Override
+    public boolean usesComments() {
+        return true;
+    }
 
-                // For conflict (ICC)
-                importMap.putIfAbsent(classShortName, new HashSet<>());
-                importMap.get(classShortName).add(packageName);
+    @Override
+    public void visit(CompilationUnit cu, MetricSink sink) {
+        int classId = sink.classId(ClassNames.primary(cu));
 
-                // For usage
-                importedClassNames.add(classShortName);
+        // Collect all import declarations
+        List<ImportDeclaration> imports = cu.getImports();
 
-                // For counting all imports
-                importCount.put(importKey, importCount.getOrDefault(importKey, 0) + 1);
+        // Map for import conflicts: classSimpleName -> set of packages
+        Map<String, Set<String>> importMap = new HashMap<>();
+        // Count duplicate imports
+        Map<String, Integer> importCount = new HashMap<>();
+        // Set for all imported qualified names
+        Set<String> importQualifiedNames = new HashSet<>();
+        // Set for all simple imported class names
+        Set<String> importedClassNames = new HashSet<>();
+        // Set for all on-demand imports ("java.util.*", "static org.junit.Assert.*")
+        Set<String> starImports = new HashSet<>();
+
+        int icd = 0; // Importations en double
+        int icc = 0; // Importations conflictuelles
+
+        for (ImportDeclaration importDecl : imports) {
+            String fullName = importDecl.getNameAsString();
+            if (importDecl.isAsterisk()) {
+                // Pas de nom simple : seuls ICD et l'usage s'appliquent
+                String starKey = (importDecl.isStatic() ? "static " : "") + fullName + ".*";
+                if (!starImports.add(starKey)) icd++;
+                continue;
+            }
+
+            String classShortName = getClassName(fullName);
+            String packageName = getPackageName(fullName);
+            String importKey = fullName + (importDecl.isStatic() ? " static" : "");
+
+            // For double imports (ICD)
+            if (importQualifiedNames.contains(importKey)) {
+                icd++;
+            } else {
+                importQualifiedNames.add(importKey);
             }
 
-            // ICC: count how many class names are imported from more than one package
-            for (Set<String> pkgs : importMap.values()) {
-                if (pkgs.size() > 1) icc++;
+            // For conflict (ICC)
+            importMap.putIfAbsent(classShortName, new HashSet<>());
+            importMap.get(classShortName).add(packageName);
+
+            // For usage
+            importedClassNames.add(classShortName);
+
+            // For counting all imports
+            importCount.put(importKey, importCount.getOrDefault(importKey, 0) + 1);
+        }
+
+        // ICC: count how many class names are imported from more than one package
+        for (Set<String> pkgs : importMap.values()) {
+            if (pkgs.size() > 1) icc++;
+        }
+
+        // ICU/ICNU: noms référencés collectés en un seul parcours, puis recherche O(1) par import
+        ReferencedNames referenced = new ReferencedNames();
+        cu.accept(referenced, null);
+        for (Comment comment : SourceComments.of(cu)) {
+            Matcher matcher = JAVADOC_REFERENCE.matcher(comment.getContent());
+            while (matcher.find()) referenced.names.add(getClassName(matcher.group(1)).split("#")[0]);
+        }
+
+        int icu = 0;
+        int icnu = 0;
+        for (String classNameShort : importedClassNames) {
+            if (referenced.names.contains(classNameShort)) {
+                icu++;
+            } else {
+                icnu++;
+            }
+        }
+        for (String starImport : starImports) {
+            boolean used = starImport.startsWith("static ")
+                    ? referenced.hasUnresolvedMember()
+                    : referenced.hasUnresolvedType(importedClassNames);
+            if (used) {
+                icu++;
+            } else {
+                icnu++;
+            }
+        }
+
+        sink.put(classId, Metric.ICU, icu);
+        sink.put(classId, Metric.ICNU, icnu);
+        sink.put(classId, Metric.ICD, icd);
+        sink.put(classId, Metric.ICC, icc);
+    }
+
+    /**
+     * Noms simples référencés dans le code (types, expressions, annotations), hors déclarations
+     * package/import. Sans résolution, un import à la demande est considéré utilisé dès qu'un nom
+     * n'est expliqué ni par une déclaration locale, ni par un import explicite, ni par java.lang.
+     */
+    private static final class ReferencedNames extends VoidVisitorAdapter<Void> {
+        final Set<String> names = new HashSet<>();
+        final Set<String> typeNames = new HashSet<>();
+        final Set<String> unscopedMembers = new HashSet<>();
+        final Set<String> declaredNames = new HashSet<>();
+
+        @Override
+        public void visit(PackageDeclaration n, Void arg) {
+        }
+
+        @Override
+        public void visit(ImportDeclaration n, Void arg) {
+        }
+
+        @Override
+        public void visit(ClassOrInterfaceType n, Void arg) {
+            names.add(n.getNameAsString());
+            if (n.getScope().isEmpty()) typeNames.add(n.getNameAsString());
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(NameExpr n, Void arg) {
+            names.add(n.getNameAsString());
+            unscopedMembers.add(n.getNameAsString());
+        }
+
+        @Override
+        public void visit(MethodCallExpr n, Void arg) {
+            if (n.getScope().isEmpty()) {
+                names.add(n.getNameAsString());
+                unscopedMembers.add(n.getNameAsString());
             }
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(MarkerAnnotationExpr n, Void arg) {
+            addAnnotation(n);
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(SingleMemberAnnotationExpr n, Void arg) {
+            addAnnotation(n);
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(NormalAnnotationExpr n, Void arg) {
+            addAnnotation(n);
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(ClassOrInterfaceDeclaration n, Void arg) {
+            declaredNames.add(n.getNameAsString());
+            n.getTypeParameters().forEach(t -> declaredNames.add(t.getNameAsString()));
+            super.visit(n, arg);
+        }
 
-            // ICU/ICNU: check if imported class name is used in the code
-            String cuAsString = cu.toString();
-            int icu = 0;
-            int icnu = 0;
-            for (String classNameShort : importedClassNames) {
-                // Check if simple class name is used in the code (naive: search for class name in source)
-                if (cuAsString.contains(classNameShort)) {
-                    icu++;
-                } else {
-                    icnu++;
+        @Override
+        public void visit(EnumDeclaration n, Void arg) {
+            declaredNames.add(n.getNameAsString());
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(AnnotationDeclaration n, Void arg) {
+            declaredNames.add(n.getNameAsString());
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(EnumConstantDeclaration n, Void arg) {
+            declaredNames.add(n.getNameAsString());
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(MethodDeclaration n, Void arg) {
+            declaredNames.add(n.getNameAsString());
+            n.getTypeParameters().forEach(t -> declaredNames.add(t.getNameAsString()));
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(VariableDeclarator n, Void arg) {
+            declaredNames.add(n.getNameAsString());
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(Parameter n, Void arg) {
+            declaredNames.add(n.getNameAsString());
+            super.visit(n, arg);
+        }
+
+        private void addAnnotation(AnnotationExpr annotation) {
+            names.add(annotation.getName().getIdentifier());
+            if (annotation.getName().getQualifier().isEmpty()) typeNames.add(annotation.getName().getIdentifier());
+        }
+
+        // Un type utilisé qui ne vient ni du fichier, ni d'un import explicite, ni de java.lang
+        boolean hasUnresolvedType(Set<String> explicitImports) {
+            for (String type : typeNames) {
+                if (!declaredNames.contains(type) && !explicitImports.contains(type) && !JAVA_LANG_TYPES.contains(type)) {
+                    return true;
                 }
             }
+            return false;
+        }
 
-            metrics.put("ICU", String.valueOf(icu));
-            metrics.put("ICNU", String.valueOf(icnu));
-            metrics.put("ICD", String.valueOf(icd));
-            metrics.put("ICC", String.valueOf(icc));
-            result.put(className, metrics);
+        // Un membre appelé sans qualification qui n'est pas déclaré dans le fichier
+        boolean hasUnresolvedMember() {
+            for (String member : unscopedMembers) {
+                if (!declaredNames.contains(member)) return true;
+            }
+            return false;
         }
-        return result;
     }
 
     private String getClassName(String fullName) {
@@ -1,7 +1,5 @@
 package analyzers;
 
-import com.github.javaparser.JavaParser;
-import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
@@ -9,70 +7,65 @@ import com.github.javaparser.ast.body.MethodDeclaration;
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-public class JAXAnalyzer {
+public class JAXAnalyzer implements Analyzer {
     private final Path projectPath;
 
     public JAXAnalyzer(Path projectPath) {
         this.projectPath = projectPath;
     }
 
-    public Map<String, Map<String, String>> analyze() throws IOException {
-        Map<String, Map<String, String>> result = new HashMap<>();
-        JavaParser parser = new JavaParser();
-
-        try (Stream<Path> paths = Files.walk(projectPath)) {
-            List<Path> javaFiles = paths
-                    .filter(p -> p.toString().endsWith(".java"))
-                    .collect(Collectors.toList());
-
-            for (Path javaFile : javaFiles) {
-                ParseResult<CompilationUnit> resultCU = parser.parse(javaFile);
-                if (!resultCU.isSuccessful() || resultCU.getResult().isEmpty()) {
-                    continue;
-                }
-
-                CompilationUnit cu = resultCU.getResult().get();
-                String className = javaFile.getFileName().toString().replace(".java", "");
-                Map<String, String> metrics = new HashMap<>();
+    public MetricTable analyze() throws IOException {
+        return new AnalysisPipeline(projectPath, this).run();
+    }
 
-                int totalLines = cu.getRange().map(r -> r.end.line - r.begin.line + 1).orElse(0);
-                int commentLines = cu.getAllComments().size();
-                int methodCount = cu.findAll(MethodDeclaration.class).size();
+    // 2 : lignes_comm compte chaque commentaire une fois (l'attribution aux nœuds en dupliquait certains)
+    @Override
+    public int version() {
+        return 2;
+    }
 
-                int interfaceCount = 0;
-                int subclassCount = 0;
-                int abstractClassCount = 0;
-                int abstractMethodCount = 0;
+    // lignes_comm
+    @Override
+    public boolean usesComments() {
+        return true;
+    }
 
-                List<ClassOrInterfaceDeclaration> classes = cu.findAll(ClassOrInterfaceDeclaration.class);
-                for (ClassOrInterfaceDeclaration clazz : classes) {
-                    if (clazz.isInterface()) {
-                        interfaceCount++;
-                    } else {
-                        if (clazz.isAbstract()) abstractClassCount++;
-                        if (!clazz.getExtendedTypes().isEmpty()) subclassCount++;
-                    }
-                }
+    @Override
+    public void visit(CompilationUnit cu, MetricSink sink) {
+        int classId = sink.classId(ClassNames.primary(cu));
 
-                for (MethodDeclaration method : cu.findAll(MethodDeclaration.class)) {
-                    if (method.isAbstract()) abstractMethodCount++;
-                }
+        // Sans tokens (parse du pipeline), l'étendue vient de la passe lexicale
+        int totalLines = cu.getRange().map(r -> r.end.line - r.begin.line + 1)
+                .orElseGet(() -> Optional.ofNullable(SourceScanner.of(cu)).map(SourceScanner.Result::spannedLines).orElse(0));
+        int commentLines = SourceComments.of(cu).size();
+        int methodCount = cu.findAll(MethodDeclaration.class).size();
 
-                metrics.put("lignes_code", String.valueOf(totalLines));
-                metrics.put("lignes_comm", String.valueOf(commentLines));
-                metrics.put("nb_methodes", String.valueOf(methodCount));
-                metrics.put("nb_interfaces", String.valueOf(interfaceCount));
-                metrics.put("nb_sous_classes", String.valueOf(subclassCount));
-                metrics.put("nb_classes_abstract", String.valueOf(abstractClassCount));
-                metrics.put("jax_nb_methodes_abstraites", String.valueOf(abstractMethodCount));
+        int interfaceCount = 0;
+        int subclassCount = 0;
+        int abstractClassCount = 0;
+        int abstractMethodCount = 0;
 
-                result.put(className, metrics);
+        List<ClassOrInterfaceDeclaration> classes = cu.findAll(ClassOrInterfaceDeclaration.class);
+        for (ClassOrInterfaceDeclaration clazz : classes) {
+            if (clazz.isInterface()) {
+                interfaceCount++;
+            } else {
+                if (clazz.isAbstract()) abstractClassCount++;
+                if (!clazz.getExtendedTypes().isEmpty()) subclassCount++;
             }
         }
 
-        return result;
+        for (MethodDeclaration method : cu.findAll(MethodDeclaration.class)) {
+            if (method.isAbstract()) abstractMethodCount++;
+        }
+
+        sink.put(classId, Metric.LIGNES_CODE, totalLines);
+        sink.put(classId, Metric.LIGNES_COMM, commentLines);
+        sink.put(classId, Metric.NB_METHODES, methodCount);
+        sink.put(classId, Metric.NB_INTERFACES, interfaceCount);
+        sink.put(classId, Metric.NB_SOUS_CLASSES, subclassCount);
+        sink.put(classId, Metric.NB_CLASSES_ABSTRACT, abstractClassCount);
+        sink.put(classId, Metric.JAX_NB_METHODES_ABSTRAITES, abstractMethodCount);
     }
 }
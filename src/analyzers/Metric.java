@@ -0,0 +1,78 @@
+package analyzers;
+
+import java.util.Locale;
+
+/**
+ * Colonnes de métriques du CSV, dans l'ordre du header. Les valeurs circulent en double
+ * et ne sont formatées qu'au moment de l'écriture.
+ */
+public enum Metric {
+    LIGNES_CODE("lignes_code", Kind.COUNT),
+    LIGNES_COMM("lignes_comm", Kind.COUNT),
+    NB_METHODES("nb_methodes", Kind.COUNT),
+    NB_INTERFACES("nb_interfaces", Kind.COUNT),
+    NB_SOUS_CLASSES("nb_sous_classes", Kind.COUNT),
+    NB_CLASSES_ABSTRACT("nb_classes_abstract", Kind.COUNT),
+    JAX_NB_METHODES_ABSTRAITES("jax_nb_methodes_abstraites", Kind.COUNT),
+    DJEA("DJEA", Kind.COUNT),
+    NDJEA("NDJEA", Kind.COUNT),
+    ICU("ICU", Kind.COUNT),
+    ICNU("ICNU", Kind.COUNT),
+    ICD("ICD", Kind.COUNT),
+    ICC("ICC", Kind.COUNT),
+    ENCAPSULATION_RATE_METHODS("encapsulation_rate_methods", Kind.RATE),
+    ENCAPSULATION_RATE_FIELDS("encapsulation_rate_fields", Kind.RATE),
+    ENCAPSULATION_RATE_TOTAL("encapsulation_rate_total", Kind.RATE),
+    DMS_SCORE("dms_score", Kind.RATE),
+    COHESION_RATE("CohesionRate", Kind.RATE),
+    LCOM1("LCOM1", Kind.COUNT),
+    LCOM2("LCOM2", Kind.COUNT),
+    LCOM3("LCOM3", Kind.COUNT),
+    LCOM4("LCOM4", Kind.COUNT),
+    // Comptages lexicaux (SourceScanner) : une ligne mixte code + commentaire compte dans les deux
+    LIGNES_PHYSIQUES("lignes_physiques", Kind.COUNT),
+    LIGNES_LOGIQUES("lignes_logiques", Kind.COUNT),
+    LIGNES_VIDES("lignes_vides", Kind.COUNT),
+    LIGNES_COMMENTAIRES("lignes_commentaires", Kind.COUNT),
+    // Métriques inter-fichiers du TypeGraph (--type-graph)
+    DIT("DIT", Kind.COUNT),
+    NOC("NOC", Kind.COUNT),
+    CBO("CBO", Kind.COUNT),
+    FAN_IN("FAN_IN", Kind.COUNT),
+    FAN_OUT("FAN_OUT", Kind.COUNT),
+    RFC("RFC", Kind.COUNT);
+
+    public enum Kind { COUNT, RATE }
+
+    private static final Metric[] VALUES = values();
+
+    private final String column;
+    private final Kind kind;
+
+    Metric(String column, Kind kind) {
+        this.column = column;
+        this.kind = kind;
+    }
+
+    // Nom de la colonne dans le CSV
+    public String getColumn() {
+        return column;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String format(double value) {
+        return kind == Kind.COUNT ? Long.toString((long) value) : String.format(Locale.US, "%.4f", value);
+    }
+
+    // Évite la copie de values() dans les boucles
+    public static Metric byIndex(int index) {
+        return VALUES[index];
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+}
@@ -0,0 +1,153 @@
+package analyzers;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Cache disque des métriques par fichier, indexé par le hash SHA-256 du contenu
+ * (plus le nom du fichier et la version des analyseurs). Un fichier identique entre
+ * la version buggy et fixed, ou entre deux bugs du même projet, n'est jamais reparsé.
+ */
+public class MetricCache {
+    // Format binaire des entrées : à incrémenter si la structure change
+    // (3 : les classes sont identifiées par leur nom qualifié)
+    private static final int FORMAT_VERSION = 3;
+
+    private final Path cacheDir;
+    private final byte[] analyzersFingerprint;
+
+    public MetricCache(Path cacheDir, List<Analyzer> analyzers) {
+        this(cacheDir, analyzers, "");
+    }
+
+    /**
+     * variant distingue les résultats qui dépendent d'autre chose que du fichier lui-même
+     * (ex. l'empreinte du TypeResolver en mode --resolve)
+     */
+    public MetricCache(Path cacheDir, List<Analyzer> analyzers, String variant) {
+        this.cacheDir = cacheDir;
+        StringBuilder fingerprint = new StringBuilder(variant).append(';');
+        for (Analyzer analyzer : analyzers) {
+            fingerprint.append(analyzer.getClass().getName()).append('@').append(analyzer.version()).append(';');
+        }
+        this.analyzersFingerprint = fingerprint.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Clé d'un fichier : le nom compte aussi, il donne le nom de la classe principale
+     */
+    public String key(String fileName, byte[] content) {
+        return key(fileName, java.nio.ByteBuffer.wrap(content));
+    }
+
+    public String key(String fileName, java.nio.ByteBuffer content) {
+        MessageDigest digest = sha256();
+        digest.update(analyzersFingerprint);
+        digest.update(fileName.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(content);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Retourne les métriques en cache pour cette clé, ou null si absentes
+    public MetricTable get(String key, ClassIndex index) {
+        Path entry = entryPath(key);
+        if (!Files.exists(entry)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            if (in.readInt() != FORMAT_VERSION || in.readInt() != Metric.count()) return null;
+            return readTable(in, index);
+        } catch (IOException e) {
+            return null; // entrée tronquée ou illisible : on reparse
+        }
+    }
+
+    public void put(String key, MetricTable fileMetrics) {
+        write(entryPath(key), out -> {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(Metric.count());
+            writeTable(out, fileMetrics);
+        });
+    }
+
+    /**
+     * Classes d'une table, par nom qualifié, puis une valeur par métrique (NaN si absente)
+     */
+    static void writeTable(DataOutputStream out, MetricTable table) throws IOException {
+        out.writeInt(table.size());
+        for (int r = 0; r < table.size(); r++) {
+            out.writeUTF(table.className(r));
+            for (int c = 0; c < Metric.count(); c++) {
+                out.writeDouble(table.get(r, Metric.byIndex(c)));
+            }
+        }
+    }
+
+    static MetricTable readTable(DataInputStream in, ClassIndex index) throws IOException {
+        int size = in.readInt();
+        MetricTable table = new MetricTable(index, size);
+        for (int r = 0; r < size; r++) {
+            int classId = table.classId(in.readUTF());
+            table.row(classId);
+            for (int c = 0; c < Metric.count(); c++) {
+                double value = in.readDouble();
+                if (!Double.isNaN(value)) table.put(classId, Metric.byIndex(c), value);
+            }
+        }
+        return table;
+    }
+
+    private interface EntryWriter {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private static void write(Path entry, EntryWriter writer) {
+        try {
+            Files.createDirectories(entry.getParent());
+            // Écriture dans un fichier temporaire puis move atomique : pas d'entrée partielle après un crash
+            Path tmp = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                writer.writeTo(out);
+            }
+            Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Impossible d'écrire dans le cache: " + entry + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Contribution au TypeGraph du fichier de même clé, ou null si absente : le fichier est alors reparsé
+     */
+    public TypeGraph.FileTypes getTypes(String key) {
+        Path entry = entryPath(key, ".types");
+        if (!Files.exists(entry)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            return TypeGraph.FileTypes.readFrom(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void putTypes(String key, TypeGraph.FileTypes types) {
+        write(entryPath(key, ".types"), types::writeTo);
+    }
+
+    private Path entryPath(String key) {
+        return entryPath(key, ".bin");
+    }
+
+    private Path entryPath(String key, String suffix) {
+        return cacheDir.resolve(key.substring(0, 2)).resolve(key + suffix);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package analyzers;
+
+/**
+ * Reçoit les métriques produites par les analyseurs, classe par classe.
+ * Les classes sont désignées par l'identifiant attribué à leur nom qualifié (voir {@link ClassNames}).
+ */
+public interface MetricSink {
+    int classId(String qualifiedName);
+
+    void put(int classId, Metric metric, double value);
+}
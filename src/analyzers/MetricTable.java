@@ -0,0 +1,162 @@
+package analyzers;
+
+import java.util.Arrays;
+
+/**
+ * Métriques d'un ensemble de classes, stockées par colonne : un double[] par {@link Metric},
+ * indexé par le numéro de ligne de la classe. NaN marque une métrique absente.
+ * Les lignes sont retrouvées par identifiant de {@link ClassIndex}, sans hacher de chaîne.
+ */
+public class MetricTable implements MetricSink {
+    // Au-delà, on passe d'une recherche linéaire à un tableau identifiant -> ligne
+    private static final int LINEAR_LOOKUP = 16;
+
+    private final ClassIndex index;
+    private int[] ids;
+    private int[] rowById;
+    private final double[][] columns;
+    private int size;
+
+    public MetricTable(ClassIndex index) {
+        this(index, 8);
+    }
+
+    public MetricTable(ClassIndex index, int capacity) {
+        this.index = index;
+        ids = new int[Math.max(1, capacity)];
+        columns = new double[Metric.count()][];
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = newColumn(ids.length);
+        }
+    }
+
+    public ClassIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    public int classId(String qualifiedName) {
+        return index.id(qualifiedName);
+    }
+
+    // Ligne de la classe, créée si besoin
+    public int row(int classId) {
+        int row = find(classId);
+        if (row >= 0) return row;
+        if (size == ids.length) grow();
+        ids[size] = classId;
+        if (rowById == null && size + 1 > LINEAR_LOOKUP) buildRowById();
+        if (rowById != null) {
+            ensureRowById(classId);
+            rowById[classId] = size;
+        }
+        return size++;
+    }
+
+    public int row(String qualifiedName) {
+        return row(index.id(qualifiedName));
+    }
+
+    @Override
+    public void put(int classId, Metric metric, double value) {
+        int row = row(classId); // avant de lire la colonne : row() peut la réallouer
+        columns[metric.ordinal()][row] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int classId(int row) {
+        return ids[row];
+    }
+
+    public String className(int row) {
+        return index.name(ids[row]);
+    }
+
+    public double get(int row, Metric metric) {
+        return columns[metric.ordinal()][row];
+    }
+
+    public boolean has(int row, Metric metric) {
+        return !Double.isNaN(columns[metric.ordinal()][row]);
+    }
+
+    /**
+     * Colonne brute (longueur >= size()), pour les agrégations en boucle serrée
+     */
+    public double[] column(Metric metric) {
+        return columns[metric.ordinal()];
+    }
+
+    /**
+     * Ajoute les métriques d'une autre table ; pour une même classe, les valeurs présentes écrasent
+     */
+    public void merge(MetricTable other) {
+        for (int r = 0; r < other.size; r++) {
+            int target = other.index == index ? row(other.ids[r]) : row(other.className(r));
+            for (int c = 0; c < columns.length; c++) {
+                double value = other.columns[c][r];
+                if (!Double.isNaN(value)) columns[c][target] = value;
+            }
+        }
+    }
+
+    /**
+     * Différence this - before pour les classes présentes des deux côtés,
+     * sur les métriques renseignées dans les deux tables
+     */
+    public MetricTable minus(MetricTable before) {
+        MetricTable delta = new MetricTable(index, size);
+        for (int r = 0; r < size; r++) {
+            int previous = before.index == index ? before.find(ids[r]) : before.find(before.index.id(className(r)));
+            if (previous < 0) continue;
+            int target = delta.row(ids[r]);
+            for (int c = 0; c < columns.length; c++) {
+                delta.columns[c][target] = columns[c][r] - before.columns[c][previous]; // NaN si absent d'un côté
+            }
+        }
+        return delta;
+    }
+
+    // Ligne de la classe, ou -1
+    private int find(int classId) {
+        if (rowById != null) return classId < rowById.length ? rowById[classId] : -1;
+        for (int r = 0; r < size; r++) {
+            if (ids[r] == classId) return r;
+        }
+        return -1;
+    }
+
+    private void buildRowById() {
+        rowById = new int[0];
+        for (int r = 0; r < size; r++) {
+            ensureRowById(ids[r]);
+            rowById[ids[r]] = r;
+        }
+    }
+
+    private void ensureRowById(int classId) {
+        if (classId < rowById.length) return;
+        int previousLength = rowById.length;
+        rowById = Arrays.copyOf(rowById, Math.max(classId + 1, Math.max(index.size(), previousLength * 2)));
+        Arrays.fill(rowById, previousLength, rowById.length, -1);
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        for (int c = 0; c < columns.length; c++) {
+            double[] column = newColumn(capacity);
+            System.arraycopy(columns[c], 0, column, 0, size);
+            columns[c] = column;
+        }
+    }
+
+    private static double[] newColumn(int capacity) {
+        double[] column = new double[capacity];
+        Arrays.fill(column, Double.NaN);
+        return column;
+    }
+}
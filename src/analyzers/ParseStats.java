@@ -0,0 +1,64 @@
+package analyzers;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compteurs du parse d'un pipeline et liste des fichiers rejetés, alimentés par tous les threads.
+ */
+public class ParseStats {
+    public enum Reason { SYNTAX, TIMEOUT, SIZE, ERROR }
+
+    public record Reject(Path file, Reason reason, String detail) {
+    }
+
+    private final AtomicInteger files = new AtomicInteger();
+    private final AtomicInteger relaxed = new AtomicInteger();
+    private final List<Reject> rejects = new ArrayList<>();
+
+    void fileSeen() {
+        files.incrementAndGet();
+    }
+
+    // Fichier accepté seulement avec la configuration de repli
+    void relaxed() {
+        relaxed.incrementAndGet();
+    }
+
+    void reject(Path file, Reason reason, String detail) {
+        // Une seule ligne par rejet dans le fichier des rejets
+        String line = detail == null ? "" : detail.replaceAll("\\s+", " ").trim();
+        synchronized (rejects) {
+            rejects.add(new Reject(file, reason, line));
+        }
+    }
+
+    public int getFiles() {
+        return files.get();
+    }
+
+    public int getRelaxed() {
+        return relaxed.get();
+    }
+
+    public int getRejected() {
+        synchronized (rejects) {
+            return rejects.size();
+        }
+    }
+
+    public List<Reject> getRejects() {
+        synchronized (rejects) {
+            // Ordre des fichiers, quel que soit le nombre de threads
+            return rejects.stream().sorted(Comparator.comparing(Reject::file)).toList();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getFiles() + " fichiers, " + getRelaxed() + " acceptés en mode relâché, " + getRejected() + " rejetés";
+    }
+}
@@ -0,0 +1,216 @@
+package analyzers;
+
+import jdk.jfr.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentation d'un run : temps mur, temps CPU et allocation de chaque étape
+ * (checkout, découverte des fichiers, lecture, parse, chaque analyseur...), mesurés sur le thread
+ * qui l'exécute, plus les volumes traités. Partagé par tous les threads.
+ * Rapport JSON/CSV à la fin du run, et événements JFR si un enregistrement est actif (--jfr).
+ */
+public class RunMetrics {
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    /**
+     * Cumul d'une étape, toutes invocations et tous threads confondus
+     */
+    public static final class Stage {
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder wallNanos = new LongAdder();
+        private final LongAdder cpuNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Mesure en cours, à terminer sur le thread qui l'a commencée
+     */
+    public final class Span {
+        private final Stage stage;
+        private final long wallStart;
+        private final long cpuStart;
+        private final long allocStart;
+        private final StageEvent event;
+
+        private Span(Stage stage) {
+            this.stage = stage;
+            this.event = StageEvent.ENABLED ? new StageEvent() : null;
+            if (event != null) event.begin();
+            this.cpuStart = cpuTime();
+            this.allocStart = allocatedBytes();
+            this.wallStart = System.nanoTime();
+        }
+
+        public void stop() {
+            long wall = System.nanoTime() - wallStart;
+            long cpu = cpuTime() - cpuStart;
+            long alloc = allocatedBytes() - allocStart;
+            stage.calls.increment();
+            stage.wallNanos.add(wall);
+            stage.cpuNanos.add(cpu);
+            stage.allocatedBytes.add(alloc);
+            if (event != null) {
+                event.end();
+                event.stage = stage.name;
+                event.cpuTime = cpu;
+                event.allocated = alloc;
+                event.commit();
+            }
+        }
+    }
+
+    @Name("defects4j.Stage")
+    @Label("Étape d'analyse")
+    @Category("Defects4J")
+    @StackTrace(false)
+    static final class StageEvent extends Event {
+        // Évite d'allouer un événement par mesure quand aucun enregistrement n'est demandé
+        static volatile boolean ENABLED;
+
+        @Label("Étape")
+        String stage;
+        @Label("Temps CPU")
+        @Timespan
+        long cpuTime;
+        @Label("Alloué")
+        @DataAmount
+        long allocated;
+    }
+
+    private final Map<String, Stage> stages = new ConcurrentHashMap<>();
+    // Ordre de première apparition, pour un rapport lisible
+    private final List<Stage> order = Collections.synchronizedList(new ArrayList<>());
+    private final LongAdder files = new LongAdder();
+    private final LongAdder classes = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final long startNanos = System.nanoTime();
+    private Recording recording;
+
+    public Stage stage(String name) {
+        return stages.computeIfAbsent(name, n -> {
+            Stage stage = new Stage(n);
+            order.add(stage);
+            return stage;
+        });
+    }
+
+    public Span start(Stage stage) {
+        return new Span(stage);
+    }
+
+    public Span start(String stage) {
+        return new Span(stage(stage));
+    }
+
+    public void fileRead(long bytes) {
+        files.increment();
+        bytesRead.add(bytes);
+    }
+
+    public void classesEmitted(int count) {
+        classes.add(count);
+    }
+
+    public void cacheHit() {
+        cacheHits.increment();
+    }
+
+    /**
+     * Enregistre les événements d'étape dans un fichier JFR, écrit par {@link #close}
+     */
+    public void startRecording(Path jfrFile) throws IOException {
+        recording = new Recording();
+        recording.enable(StageEvent.class);
+        recording.setDestination(jfrFile);
+        recording.start();
+        StageEvent.ENABLED = true;
+    }
+
+    public void close() {
+        if (recording == null) return;
+        StageEvent.ENABLED = false;
+        recording.stop();
+        recording.close();
+        recording = null;
+    }
+
+    /**
+     * Rapport du run : run-report.json et run-report.csv dans outputDir
+     */
+    public void writeReport(Path outputDir) throws IOException {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        List<Stage> snapshot;
+        synchronized (order) {
+            snapshot = new ArrayList<>(order);
+        }
+
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(outputDir.resolve("run-report.csv"),
+                StandardCharsets.UTF_8))) {
+            csv.println("stage,calls,wall_ms,cpu_ms,allocated_mb");
+            for (Stage stage : snapshot) {
+                csv.println(String.format(Locale.US, "%s,%d,%.1f,%.1f,%.1f", stage.name, stage.calls.sum(),
+                        stage.wallNanos.sum() / 1e6, stage.cpuNanos.sum() / 1e6, stage.allocatedBytes.sum() / 1e6));
+            }
+        }
+
+        try (PrintWriter json = new PrintWriter(Files.newBufferedWriter(outputDir.resolve("run-report.json"),
+                StandardCharsets.UTF_8))) {
+            json.println("{");
+            json.println(String.format(Locale.US, "  \"wall_s\": %.3f,", seconds));
+            json.println("  \"files\": " + files.sum() + ",");
+            json.println("  \"classes\": " + classes.sum() + ",");
+            json.println("  \"bytes_read\": " + bytesRead.sum() + ",");
+            json.println("  \"cache_hits\": " + cacheHits.sum() + ",");
+            json.println(String.format(Locale.US, "  \"files_per_s\": %.1f,", files.sum() / seconds));
+            json.println(String.format(Locale.US, "  \"classes_per_s\": %.1f,", classes.sum() / seconds));
+            json.println("  \"stages\": [");
+            for (int i = 0; i < snapshot.size(); i++) {
+                Stage stage = snapshot.get(i);
+                json.print(String.format(Locale.US,
+                        "    {\"stage\": \"%s\", \"calls\": %d, \"wall_ms\": %.1f, \"cpu_ms\": %.1f, \"allocated_bytes\": %d}",
+                        stage.name, stage.calls.sum(), stage.wallNanos.sum() / 1e6, stage.cpuNanos.sum() / 1e6,
+                        stage.allocatedBytes.sum()));
+                json.println(i < snapshot.size() - 1 ? "," : "");
+            }
+            json.println("  ]");
+            json.println("}");
+        }
+    }
+
+    private static long cpuTime() {
+        return THREADS != null ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    // Extension HotSpot : absente sur d'autres JVM, les temps CPU et allocations valent alors 0
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!bean.isCurrentThreadCpuTimeSupported() || !bean.isThreadAllocatedMemorySupported()) return null;
+        bean.setThreadCpuTimeEnabled(true);
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+}
@@ -0,0 +1,69 @@
+package analyzers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache des fichiers sources partagé par les pipelines d'un run, borné en octets (éviction LRU).
+ * Chaque fichier est lu une fois : les gros fichiers sont mappés en mémoire, les petits copiés
+ * en un seul read. Une entrée n'est réutilisée que si la date et la taille du fichier n'ont pas changé.
+ */
+public class SourceCache {
+    // En dessous, un read est moins coûteux qu'un mmap
+    private static final int MAP_THRESHOLD = 64 * 1024;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Path, SourceFile> files = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    public SourceCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Contenu du fichier, lu depuis le disque seulement s'il n'est pas déjà en cache
+     */
+    public SourceFile read(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        synchronized (this) {
+            SourceFile cached = files.get(file);
+            if (cached != null && cached.isCurrent(attributes.lastModifiedTime(), attributes.size())) return cached;
+        }
+
+        SourceFile source = new SourceFile(file, load(file, attributes.size()), attributes.lastModifiedTime());
+        synchronized (this) {
+            SourceFile previous = files.put(file, source);
+            if (previous != null) totalBytes -= previous.size();
+            totalBytes += source.size();
+            evict();
+        }
+        return source;
+    }
+
+    private static ByteBuffer load(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (size >= MAP_THRESHOLD) return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // lecture jusqu'à la fin du fichier
+            }
+            return buffer.flip();
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Path, SourceFile>> eldest = files.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().getValue().size();
+            eldest.remove();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package analyzers;
+
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.comments.Comment;
+
+import java.util.List;
+
+/**
+ * Commentaires d'une CompilationUnit. Le pipeline parse sans attribuer les commentaires aux nœuds :
+ * il attache la liste brute du parse, seulement si un analyseur la demande (Analyzer.usesComments).
+ */
+public final class SourceComments {
+    static final DataKey<List<Comment>> KEY = new DataKey<>() {
+    };
+
+    private SourceComments() {
+    }
+
+    // Commentaires relevés par le parse, attachés à sa CompilationUnit
+    public static void attach(CompilationUnit cu, ParseResult<CompilationUnit> result) {
+        cu.setData(KEY, result.getCommentsCollection()
+                .map(comments -> List.copyOf(comments.getComments())).orElse(List.of()));
+    }
+
+    // Hors pipeline (CompilationUnit parsée avec attribution), les commentaires de l'arbre
+    public static List<Comment> of(CompilationUnit cu) {
+        return cu.containsData(KEY) ? cu.getData(KEY) : cu.getAllComments();
+    }
+}
@@ -0,0 +1,64 @@
+package analyzers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Contenu d'un fichier source lu une seule fois : octets (copiés ou mappés en mémoire), partagés
+ * entre le hash du cache, le parse et la comparaison buggy/fixed. Le texte décodé n'est pas gardé ici
+ * (il compterait hors de la borne du SourceCache) : l'appelant le décode une fois par analyse.
+ */
+public final class SourceFile {
+    private final Path path;
+    private final ByteBuffer bytes;
+    private final FileTime lastModified;
+
+    SourceFile(Path path, ByteBuffer bytes, FileTime lastModified) {
+        this.path = path;
+        this.bytes = bytes.asReadOnlyBuffer();
+        this.lastModified = lastModified;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Vue en lecture seule sur les octets, avec sa propre position : utilisable par plusieurs threads
+     */
+    public ByteBuffer bytes() {
+        return bytes.duplicate();
+    }
+
+    public int size() {
+        return bytes.remaining();
+    }
+
+    /**
+     * Texte dans l'encodage donné ; si les octets n'y sont pas valides, repli en ISO-8859-1
+     * (sources anciennes de Defects4J), où tout octet est un caractère
+     */
+    public String text(Charset charset) {
+        try {
+            return charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(bytes()).toString();
+        } catch (CharacterCodingException e) {
+            return StandardCharsets.ISO_8859_1.decode(bytes()).toString();
+        }
+    }
+
+    boolean isCurrent(FileTime modified, long size) {
+        return lastModified.equals(modified) && size() == size;
+    }
+
+    public boolean sameContent(SourceFile other) {
+        return bytes().equals(other.bytes());
+    }
+}
@@ -0,0 +1,257 @@
+package analyzers;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Passe lexicale sur le texte brut, sans AST : lignes physiques, logiques (avec du code), vides
+ * et de commentaire, et métriques de l'en-tête d'imports (ICD, ICC). Sert seule dans le tier rapide
+ * et complète les analyseurs dans le tier complet.
+ */
+public final class SourceScanner {
+    // À incrémenter quand un comptage change : invalide les entrées du MetricCache
+    public static final int VERSION = 1;
+
+    // Résultat attaché à la CompilationUnit par le pipeline, voir of(cu)
+    static final DataKey<Result> KEY = new DataKey<>() {
+    };
+
+    // Annotations en tête de package-info.java, ex. @Deprecated ou @Generated("x")
+    private static final Pattern LEADING_ANNOTATION = Pattern.compile("^@\\s*[\\w.]+\\s*(\\([^)]*\\))?\\s*");
+
+    private enum State { CODE, LINE_COMMENT, BLOCK_COMMENT, STRING, CHAR, TEXT_BLOCK }
+
+    /**
+     * Comptages d'un fichier ; packageName vaut null sans déclaration de package. spannedLines va de la
+     * première à la dernière ligne non vide, comme l'étendue d'une CompilationUnit.
+     */
+    public record Result(String packageName, int physicalLines, int logicalLines, int blankLines,
+                         int commentLines, int spannedLines, int duplicateImports, int conflictingImports) {
+
+        // Colonnes de taille, publiées par les deux tiers
+        public void putLines(MetricSink sink, int classId) {
+            sink.put(classId, Metric.LIGNES_PHYSIQUES, physicalLines);
+            sink.put(classId, Metric.LIGNES_LOGIQUES, logicalLines);
+            sink.put(classId, Metric.LIGNES_VIDES, blankLines);
+            sink.put(classId, Metric.LIGNES_COMMENTAIRES, commentLines);
+        }
+
+        // ICD et ICC : dans le tier complet, ImportConflictAnalyzer les calcule sur l'AST
+        public void putImports(MetricSink sink, int classId) {
+            sink.put(classId, Metric.ICD, duplicateImports);
+            sink.put(classId, Metric.ICC, conflictingImports);
+        }
+    }
+
+    private SourceScanner() {
+    }
+
+    /**
+     * Comptages du fichier de la CompilationUnit, quand elle vient du pipeline (sinon null)
+     */
+    public static Result of(CompilationUnit cu) {
+        return cu.containsData(KEY) ? cu.getData(KEY) : null;
+    }
+
+    /**
+     * Une ligne est logique si elle porte du code (chaînes comprises), de commentaire si elle porte
+     * ou continue un commentaire : une ligne mixte compte dans les deux. Les vides n'ont ni l'un ni l'autre.
+     */
+    public static Result scan(CharSequence text) {
+        ImportHeader header = new ImportHeader();
+        State state = State.CODE;
+        int physical = 0;
+        int logical = 0;
+        int blank = 0;
+        int comment = 0;
+        boolean lineStarted = false;
+        boolean lineCode = false;
+        boolean lineComment = false;
+        int firstContent = 0;
+        int lastContent = 0;
+
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') i++;
+                physical++;
+                if (lineCode) logical++;
+                if (lineComment) comment++;
+                if (!lineCode && !lineComment) blank++;
+                // Une chaîne ou un commentaire de ligne ne traverse pas la fin de ligne
+                if (state == State.LINE_COMMENT || state == State.STRING || state == State.CHAR) state = State.CODE;
+                if (state == State.CODE) header.separator();
+                lineStarted = false;
+                lineCode = false;
+                lineComment = state == State.BLOCK_COMMENT;
+                continue;
+            }
+            lineStarted = true;
+            if (!Character.isWhitespace(c)) {
+                if (firstContent == 0) firstContent = physical + 1;
+                lastContent = physical + 1;
+            }
+
+            switch (state) {
+                case CODE:
+                    if (Character.isWhitespace(c)) {
+                        header.separator();
+                    } else if (c == '/' && next(text, i) == '/') {
+                        state = State.LINE_COMMENT;
+                        lineComment = true;
+                        header.separator();
+                        i++;
+                    } else if (c == '/' && next(text, i) == '*') {
+                        state = State.BLOCK_COMMENT;
+                        lineComment = true;
+                        header.separator();
+                        i++;
+                    } else if (c == '"') {
+                        lineCode = true;
+                        if (next(text, i) == '"' && next(text, i + 1) == '"') {
+                            state = State.TEXT_BLOCK;
+                            i += 2;
+                        } else {
+                            state = State.STRING;
+                        }
+                    } else if (c == '\'') {
+                        lineCode = true;
+                        state = State.CHAR;
+                    } else {
+                        lineCode = true;
+                        header.accept(c);
+                    }
+                    break;
+                case BLOCK_COMMENT:
+                    if (c == '*' && next(text, i) == '/') {
+                        state = State.CODE;
+                        i++;
+                    }
+                    break;
+                case STRING:
+                case CHAR:
+                    lineCode = true;
+                    if (c == '\\') {
+                        i++;
+                    } else if (c == (state == State.STRING ? '"' : '\'')) {
+                        state = State.CODE;
+                    }
+                    break;
+                case TEXT_BLOCK:
+                    if (!Character.isWhitespace(c)) lineCode = true;
+                    // "\" en fin de ligne joint les lignes : la fin de ligne reste comptée
+                    if (c == '\\' && next(text, i) != '\n' && next(text, i) != '\r') {
+                        i++;
+                    } else if (c == '"' && next(text, i) == '"' && next(text, i + 1) == '"') {
+                        state = State.CODE;
+                        i += 2;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        // Dernière ligne sans fin de ligne
+        if (lineStarted) {
+            physical++;
+            if (lineCode) logical++;
+            if (lineComment) comment++;
+            if (!lineCode && !lineComment) blank++;
+        }
+        int spanned = firstContent == 0 ? 0 : lastContent - firstContent + 1;
+        return new Result(header.packageName, physical, logical, blank, comment, spanned,
+                header.duplicates, header.conflicts());
+    }
+
+    private static char next(CharSequence text, int i) {
+        return i + 1 < text.length() ? text.charAt(i + 1) : 0;
+    }
+
+    /**
+     * Instructions "package" et "import" du début de fichier, jusqu'à la première déclaration de type.
+     * Mêmes règles qu'ImportConflictAnalyzer pour les doublons et les conflits de noms simples.
+     */
+    private static final class ImportHeader {
+        private final StringBuilder statement = new StringBuilder();
+        private boolean open = true;
+        private String packageName;
+        private int duplicates;
+        private final Set<String> starImports = new HashSet<>();
+        private final Set<String> qualifiedNames = new HashSet<>();
+        private final Map<String, Set<String>> packagesBySimpleName = new HashMap<>();
+
+        void accept(char c) {
+            if (!open) return;
+            if (c == ';') {
+                end(statement.toString().trim());
+                statement.setLength(0);
+            } else if (c == '{') {
+                open = false;
+            } else {
+                statement.append(c);
+            }
+        }
+
+        void separator() {
+            if (open && statement.length() > 0) statement.append(' ');
+        }
+
+        private void end(String text) {
+            String stripped = text;
+            for (String previous = null; !stripped.equals(previous); ) {
+                previous = stripped;
+                stripped = LEADING_ANNOTATION.matcher(stripped).replaceFirst("");
+            }
+            if (stripped.isEmpty()) return;
+
+            if (isKeyword(stripped, "package")) {
+                packageName = name(stripped.substring("package".length()));
+            } else if (isKeyword(stripped, "import")) {
+                String rest = stripped.substring("import".length()).trim();
+                boolean isStatic = isKeyword(rest, "static");
+                String fullName = name(isStatic ? rest.substring("static".length()) : rest);
+                addImport(fullName, isStatic);
+            } else {
+                open = false;
+            }
+        }
+
+        private void addImport(String fullName, boolean isStatic) {
+            if (fullName.endsWith(".*")) {
+                if (!starImports.add((isStatic ? "static " : "") + fullName)) duplicates++;
+                return;
+            }
+            if (!qualifiedNames.add(fullName + (isStatic ? " static" : ""))) duplicates++;
+            int lastDot = fullName.lastIndexOf('.');
+            String simpleName = lastDot == -1 ? fullName : fullName.substring(lastDot + 1);
+            String packagePart = lastDot == -1 ? "" : fullName.substring(0, lastDot);
+            packagesBySimpleName.computeIfAbsent(simpleName, k -> new HashSet<>()).add(packagePart);
+        }
+
+        int conflicts() {
+            int conflicts = 0;
+            for (Set<String> packages : packagesBySimpleName.values()) {
+                if (packages.size() > 1) conflicts++;
+            }
+            return conflicts;
+        }
+
+        private static boolean isKeyword(String text, String keyword) {
+            return text.startsWith(keyword)
+                    && (text.length() == keyword.length() || Character.isWhitespace(text.charAt(keyword.length())));
+        }
+
+        // Nom qualifié sans les espaces et commentaires laissés entre ses segments
+        private static String name(String text) {
+            StringBuilder name = new StringBuilder(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                if (!Character.isWhitespace(text.charAt(i))) name.append(text.charAt(i));
+            }
+            return name.toString();
+        }
+    }
+}
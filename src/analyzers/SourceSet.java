@@ -0,0 +1,266 @@
+package analyzers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Ensemble des fichiers .java à analyser dans un checkout : les racines sources sont lues dans
+ * defects4j.build.properties (d4j.dir.src.classes / d4j.dir.src.tests), ou devinées depuis
+ * l'arborescence. Le parcours saute dès le départ les dossiers qui ne doivent pas être parsés.
+ * Les fichiers peuvent aussi venir d'un SourceTree : les chemins sont alors ceux qu'aurait le
+ * checkout, sans que rien n'existe sur le disque.
+ */
+public class SourceSet {
+    public enum Scope { MAIN, TESTS, ALL }
+
+    private static final String BUILD_PROPERTIES = "defects4j.build.properties";
+    private static final List<String> MAIN_CANDIDATES = List.of("src/main/java", "src/java", "source", "src");
+    private static final List<String> TEST_CANDIDATES = List.of("src/test/java", "src/test", "test", "tests");
+    // Dossiers de build, générés ou de VCS : jamais parsés quand on parcourt le checkout entier
+    private static final Set<String> SKIPPED_DIRS = Set.of(
+            ".git", ".svn", ".hg", ".idea", "target", "build", "out", "generated", "generated-sources", "node_modules");
+
+    private final Path checkout;
+    private final Scope scope;
+    private final List<Path> roots;
+    private final List<Path> excluded;
+    // Chemins relatifs aux racines auxquels l'analyse est restreinte, null = tous les fichiers
+    private final Set<String> restrictedTo;
+    // null : fichiers lus sur le disque
+    private final SourceTree tree;
+
+    private SourceSet(Path checkout, Scope scope, List<Path> roots, List<Path> excluded, Set<String> restrictedTo,
+                      SourceTree tree) {
+        this.checkout = checkout;
+        this.scope = scope;
+        this.roots = roots;
+        this.excluded = excluded;
+        this.restrictedTo = restrictedTo;
+        this.tree = tree;
+    }
+
+    private SourceSet(Path checkout, Scope scope, List<Path> roots, List<Path> excluded, SourceTree tree) {
+        this(checkout, scope, roots, excluded, null, tree);
+    }
+
+    public static SourceSet resolve(Path checkout, Scope scope) throws IOException {
+        if (scope == Scope.ALL) return new SourceSet(checkout, scope, List.of(checkout), List.of(), null);
+
+        Properties properties = new Properties();
+        Path buildProperties = checkout.resolve(BUILD_PROPERTIES);
+        if (Files.exists(buildProperties)) {
+            try (InputStream in = Files.newInputStream(buildProperties)) {
+                properties.load(in);
+            }
+        }
+        return resolve(checkout, scope, properties, dir -> Files.isDirectory(checkout.resolve(dir)), null);
+    }
+
+    /**
+     * Sources d'un arbre hors disque : sans defects4j.build.properties, les racines sont devinées
+     * parmi les dossiers qui contiennent des fichiers .java
+     */
+    public static SourceSet resolve(Path checkout, Scope scope, SourceTree tree) {
+        if (scope == Scope.ALL) return new SourceSet(checkout, scope, List.of(checkout), List.of(), tree);
+        Set<String> dirs = new HashSet<>();
+        for (String file : tree.javaFiles()) {
+            for (int slash = file.indexOf('/'); slash > 0; slash = file.indexOf('/', slash + 1)) {
+                dirs.add(file.substring(0, slash));
+            }
+        }
+        return resolve(checkout, scope, new Properties(), dirs::contains, tree);
+    }
+
+    private static SourceSet resolve(Path checkout, Scope scope, Properties properties, Predicate<String> isDirectory,
+                                     SourceTree tree) {
+        Path mainRoot = root(checkout, properties.getProperty("d4j.dir.src.classes"), MAIN_CANDIDATES, isDirectory);
+        Path testRoot = root(checkout, properties.getProperty("d4j.dir.src.tests"), TEST_CANDIDATES, isDirectory);
+
+        if (scope == Scope.TESTS) {
+            return new SourceSet(checkout, scope, testRoot == null ? List.of() : List.of(testRoot), List.of(), tree);
+        }
+        // Les tests peuvent être rangés sous la racine principale (ex. src/ et src/test/)
+        List<Path> excluded = testRoot != null && mainRoot != null && testRoot.startsWith(mainRoot)
+                ? List.of(testRoot) : List.of();
+        return new SourceSet(checkout, scope, mainRoot == null ? List.of() : List.of(mainRoot), excluded, tree);
+    }
+
+    /**
+     * Même ensemble réduit aux fichiers donnés, en chemins relatifs à la racine (ex. "org/foo/Bar.java")
+     */
+    public SourceSet restrictTo(Collection<String> relativePaths) {
+        return new SourceSet(checkout, scope, roots, excluded, new HashSet<>(relativePaths), tree);
+    }
+
+    /**
+     * Fichiers d'une des classes données, ex. "org.foo.Bar" -> "org/foo/Bar.java"
+     */
+    public SourceSet restrictToClasses(Collection<String> qualifiedNames) {
+        List<String> relativePaths = new ArrayList<>();
+        for (String qualifiedName : qualifiedNames) {
+            relativePaths.add(qualifiedName.trim().replace('.', '/') + ".java");
+        }
+        return restrictTo(relativePaths);
+    }
+
+    /**
+     * Chemins relatifs des fichiers ajoutés, supprimés ou modifiés entre deux versions
+     */
+    public static Set<String> changedFiles(SourceSet before, SourceSet after) throws IOException {
+        return changedFiles(before, after, null);
+    }
+
+    /**
+     * Idem en lisant les fichiers via le cache : les fichiers modifiés restent en mémoire pour l'analyse qui suit
+     */
+    public static Set<String> changedFiles(SourceSet before, SourceSet after, SourceCache sourceCache)
+            throws IOException {
+        Map<String, Path> beforeFiles = before.relativeFiles();
+        Map<String, Path> afterFiles = after.relativeFiles();
+        Set<String> changed = new TreeSet<>();
+        for (Map.Entry<String, Path> entry : afterFiles.entrySet()) {
+            Path previous = beforeFiles.get(entry.getKey());
+            if (previous == null || !sameContent(before, previous, after, entry.getValue(), sourceCache)) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String relative : beforeFiles.keySet()) {
+            if (!afterFiles.containsKey(relative)) changed.add(relative);
+        }
+        return changed;
+    }
+
+    private static boolean sameContent(Path a, Path b, SourceCache sourceCache) throws IOException {
+        if (sourceCache == null) return Files.mismatch(a, b) == -1;
+        return sourceCache.read(a).sameContent(sourceCache.read(b));
+    }
+
+    // Arbres hors disque : les identifiants de contenu suffisent, rien n'est lu
+    private static boolean sameContent(SourceSet before, Path a, SourceSet after, Path b, SourceCache sourceCache)
+            throws IOException {
+        if (before.tree == null || after.tree == null) return sameContent(a, b, sourceCache);
+        return before.tree.contentId(before.checkoutPath(a)).equals(after.tree.contentId(after.checkoutPath(b)));
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    public List<Path> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Fichiers .java des racines, triés pour un ordre de sortie stable
+     */
+    public List<Path> listJavaFiles() throws IOException {
+        List<Path> javaFiles = tree != null ? treeJavaFiles() : walkJavaFiles();
+        if (restrictedTo != null) {
+            javaFiles.removeIf(file -> !restrictedTo.contains(relativePath(file)));
+        }
+        Collections.sort(javaFiles);
+        return javaFiles;
+    }
+
+    private List<Path> walkJavaFiles() throws IOException {
+        List<Path> javaFiles = new ArrayList<>();
+        for (Path root : roots) {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (excluded.contains(dir)) return FileVisitResult.SKIP_SUBTREE;
+                    // Sous une racine source, les dossiers sont des packages : on ne filtre que le checkout brut
+                    if (root.equals(checkout) && !dir.equals(root)
+                            && SKIPPED_DIRS.contains(dir.getFileName().toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && file.getFileName().toString().endsWith(".java")) javaFiles.add(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    System.err.println("Impossible de lire " + file + ": " + e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        return javaFiles;
+    }
+
+    private List<Path> treeJavaFiles() {
+        List<Path> javaFiles = new ArrayList<>();
+        for (String file : tree.javaFiles()) {
+            Path path = checkout.resolve(file);
+            for (Path root : roots) {
+                if (!path.startsWith(root) || excluded.stream().anyMatch(path::startsWith)) continue;
+                if (root.equals(checkout) && isSkipped(root.relativize(path))) continue;
+                javaFiles.add(path);
+                break;
+            }
+        }
+        return javaFiles;
+    }
+
+    private static boolean isSkipped(Path relative) {
+        for (int i = 0; i < relative.getNameCount() - 1; i++) {
+            if (SKIPPED_DIRS.contains(relative.getName(i).toString())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Taille d'un fichier de listJavaFiles, sur le disque ou dans l'arbre
+     */
+    long size(Path file) throws IOException {
+        return tree == null ? Files.size(file) : tree.size(checkoutPath(file));
+    }
+
+    /**
+     * Contenu d'un fichier de listJavaFiles : via le cache pour le disque, directement depuis l'arbre sinon
+     */
+    SourceFile read(Path file, SourceCache sourceCache) throws IOException {
+        if (tree == null) return sourceCache.read(file);
+        return new SourceFile(file, tree.content(checkoutPath(file)), FileTime.fromMillis(0));
+    }
+
+    // Chemin relatif au checkout, tel que l'arbre le connaît
+    private String checkoutPath(Path file) {
+        return checkout.relativize(file).toString().replace('\\', '/');
+    }
+
+    private Map<String, Path> relativeFiles() throws IOException {
+        Map<String, Path> files = new HashMap<>();
+        for (Path file : listJavaFiles()) files.put(relativePath(file), file);
+        return files;
+    }
+
+    // Chemin relatif à la racine qui contient le fichier, avec des "/"
+    String relativePath(Path file) {
+        for (Path root : roots) {
+            if (file.startsWith(root)) return root.relativize(file).toString().replace('\\', '/');
+        }
+        return file.toString();
+    }
+
+    // Racine déclarée par Defects4J si elle existe, sinon le premier candidat présent
+    private static Path root(Path checkout, String declared, List<String> candidates, Predicate<String> isDirectory) {
+        if (declared != null && isDirectory.test(declared.trim())) {
+            return checkout.resolve(declared.trim());
+        }
+        for (String candidate : candidates) {
+            if (isDirectory.test(candidate)) return checkout.resolve(candidate);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,21 @@
+package analyzers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Arborescence de sources lue ailleurs que sur le disque (ex. objets d'un dépôt git) :
+ * chemins relatifs au checkout, avec des "/".
+ */
+public interface SourceTree {
+    Collection<String> javaFiles();
+
+    // Deux fichiers de même identifiant ont le même contenu (ex. id de blob git)
+    String contentId(String relativePath);
+
+    // Taille en octets, connue sans lire le contenu
+    long size(String relativePath) throws IOException;
+
+    ByteBuffer content(String relativePath) throws IOException;
+}
@@ -0,0 +1,433 @@
+package analyzers;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.*;
+import com.github.javaparser.ast.expr.MarkerAnnotationExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.NormalAnnotationExpr;
+import com.github.javaparser.ast.expr.SingleMemberAnnotationExpr;
+import com.github.javaparser.ast.nodeTypes.NodeWithImplements;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Graphe des types d'un checkout, construit depuis le parse partagé : chaque fichier y dépose
+ * ses types déclarés et les noms qu'ils référencent (FileTypes). Après le run, les noms sont
+ * résolus vers les types du projet, internés en identifiants entiers, et les arêtes extends,
+ * implements et usage sont rangées dans des tableaux d'entiers. DIT, NOC, CBO, fan-in, fan-out
+ * et RFC en découlent en temps linéaire.
+ * Entre deux versions, seuls les fichiers dont le contenu a changé remplacent leur contribution.
+ */
+public final class TypeGraph {
+    // À incrémenter quand la collecte change : invalide les contributions en cache
+    public static final int VERSION = 1;
+
+    private static final int[] NO_EDGES = new int[0];
+
+    // Chemin relatif -> contribution, trié pour des identifiants stables
+    private final Map<String, Contribution> files = new TreeMap<>();
+    private boolean dirty = true;
+
+    // Dérivés de toutes les contributions, reconstruits par build() si une contribution a changé
+    private Map<String, Integer> ids = Map.of();
+    private int[][] supertypes;
+    private boolean[] externalSuper;
+    private int[][] out;
+    private int[][] in;
+    private int[] depth;
+    private int[] children;
+    private int[] coupled;
+    private int[] responses;
+
+    private record Contribution(byte[] digest, FileTypes types) {
+    }
+
+    /**
+     * Empreinte du contenu d'un fichier, pour savoir si sa contribution est à jour
+     */
+    public static byte[] digest(ByteBuffer content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized boolean isCurrent(String relativePath, byte[] digest) {
+        Contribution contribution = files.get(relativePath);
+        return contribution != null && Arrays.equals(contribution.digest(), digest);
+    }
+
+    public synchronized void update(String relativePath, byte[] digest, FileTypes types) {
+        files.put(relativePath, new Contribution(digest, types));
+        dirty = true;
+    }
+
+    public synchronized void remove(String relativePath) {
+        if (files.remove(relativePath) != null) dirty = true;
+    }
+
+    // Oublie les fichiers absents de la version analysée (supprimés ou hors du SourceSet)
+    public synchronized void retainFiles(Collection<String> relativePaths) {
+        Set<String> retained = new HashSet<>(relativePaths);
+        if (files.keySet().removeIf(path -> !retained.contains(path))) dirty = true;
+    }
+
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    /**
+     * Ajoute DIT, NOC, CBO, FAN_IN, FAN_OUT et RFC aux lignes de la table qui sont des types du graphe
+     */
+    public synchronized void putMetrics(MetricTable table) {
+        build();
+        for (int r = 0; r < table.size(); r++) {
+            Integer id = ids.get(table.className(r));
+            if (id == null) continue;
+            int classId = table.classId(r);
+            table.put(classId, Metric.DIT, depth(id));
+            table.put(classId, Metric.NOC, children[id]);
+            table.put(classId, Metric.CBO, coupled[id]);
+            table.put(classId, Metric.FAN_IN, in[id].length);
+            table.put(classId, Metric.FAN_OUT, out[id].length);
+            table.put(classId, Metric.RFC, responses[id]);
+        }
+    }
+
+    private void build() {
+        if (!dirty) return;
+        ids = new HashMap<>();
+        for (Contribution contribution : files.values()) {
+            for (TypeNode node : contribution.types().types) ids.putIfAbsent(node.name, ids.size());
+        }
+        int n = ids.size();
+        supertypes = new int[n][];
+        externalSuper = new boolean[n];
+        out = new int[n][];
+        children = new int[n];
+        responses = new int[n];
+        depth = new int[n];
+        Arrays.fill(depth, -1);
+
+        // seen[t] == id : arête id -> t déjà posée ; buffer : arêtes du type en cours
+        int[] seen = new int[n];
+        Arrays.fill(seen, -1);
+        int[] buffer = new int[n];
+        int[] inDegree = new int[n];
+        for (Contribution contribution : files.values()) {
+            FileTypes file = contribution.types();
+            Map<String, String> local = file.localNames();
+            for (TypeNode node : file.types) {
+                int id = ids.get(node.name);
+                // Un nom déclaré deux fois (même classe dans deux racines) garde la première déclaration
+                if (out[id] != null) continue;
+                supertypes[id] = resolveAll(file, local, node.supertypes, id);
+                externalSuper[id] = supertypes[id].length < node.supertypes.size();
+                int[] interfaces = resolveAll(file, local, node.interfaces, id);
+                for (int parent : supertypes[id]) children[parent]++;
+                for (int parent : interfaces) children[parent]++;
+                responses[id] = node.responses;
+
+                int count = 0;
+                for (List<String> names : List.of(node.supertypes, node.interfaces, node.uses)) {
+                    for (String name : names) {
+                        int target = resolve(file, local, name);
+                        if (target < 0 || target == id || seen[target] == id) continue;
+                        seen[target] = id;
+                        buffer[count++] = target;
+                        inDegree[target]++;
+                    }
+                }
+                out[id] = count == 0 ? NO_EDGES : Arrays.copyOf(buffer, count);
+            }
+        }
+
+        // Arêtes entrantes : un tableau par type, dimensionné par les degrés puis rempli en un passage
+        in = new int[n][];
+        for (int i = 0; i < n; i++) in[i] = inDegree[i] == 0 ? NO_EDGES : new int[inDegree[i]];
+        int[] fill = new int[n];
+        for (int source = 0; source < n; source++) {
+            for (int target : out[source]) in[target][fill[target]++] = source;
+        }
+
+        // CBO : union des voisins sortants et entrants, marqués dans seen
+        coupled = new int[n];
+        Arrays.fill(seen, -1);
+        for (int id = 0; id < n; id++) {
+            int count = out[id].length;
+            for (int target : out[id]) seen[target] = id;
+            for (int source : in[id]) {
+                if (seen[source] != id) count++;
+            }
+            coupled[id] = count;
+        }
+        dirty = false;
+    }
+
+    // Profondeur d'héritage par extends, mémoïsée ; une superclasse hors projet compte pour un niveau
+    private int depth(int id) {
+        if (depth[id] >= 0) return depth[id];
+        depth[id] = 0; // garde contre les cycles d'un code incohérent
+        int max = externalSuper[id] ? 1 : 0;
+        for (int parent : supertypes[id]) max = Math.max(max, 1 + depth(parent));
+        depth[id] = max;
+        return max;
+    }
+
+    private int[] resolveAll(FileTypes file, Map<String, String> local, List<String> names, int self) {
+        int[] resolved = new int[names.size()];
+        int count = 0;
+        for (String name : names) {
+            int target = resolve(file, local, name);
+            if (target >= 0 && target != self) resolved[count++] = target;
+        }
+        return count == 0 ? NO_EDGES : Arrays.copyOf(resolved, count);
+    }
+
+    /**
+     * Type du projet désigné par un nom tel qu'écrit dans le fichier, -1 s'il est externe.
+     * Ordre de Java : types du fichier, imports explicites, package courant, imports à la demande.
+     */
+    private int resolve(FileTypes file, Map<String, String> local, String name) {
+        int dot = name.indexOf('.');
+        String head = dot < 0 ? name : name.substring(0, dot);
+        String tail = dot < 0 ? "" : name.substring(dot);
+        Integer id = lookup(local.get(head), tail);
+        if (id == null) id = lookup(file.imports.get(head), tail);
+        if (id == null) id = lookup(file.packageName.isEmpty() ? head : file.packageName + "." + head, tail);
+        for (int i = 0; id == null && i < file.starImports.size(); i++) {
+            id = lookup(file.starImports.get(i) + "." + head, tail);
+        }
+        if (id == null && dot >= 0) id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    private Integer lookup(String prefix, String tail) {
+        return prefix == null ? null : ids.get(prefix + tail);
+    }
+
+    /**
+     * Types déclarés par un fichier et noms qu'ils référencent, tels qu'écrits : la résolution
+     * attend que tout le checkout soit connu
+     */
+    public static final class FileTypes {
+        final String packageName;
+        // Nom simple -> nom qualifié des imports de types
+        final Map<String, String> imports;
+        final List<String> starImports;
+        final List<TypeNode> types;
+
+        private FileTypes(String packageName, Map<String, String> imports, List<String> starImports,
+                          List<TypeNode> types) {
+            this.packageName = packageName;
+            this.imports = imports;
+            this.starImports = starImports;
+            this.types = types;
+        }
+
+        // Noms simples des types du fichier, imbriqués compris
+        Map<String, String> localNames() {
+            Map<String, String> local = new HashMap<>();
+            for (TypeNode node : types) {
+                int separator = Math.max(node.name.lastIndexOf('.'), node.name.lastIndexOf('$'));
+                local.putIfAbsent(node.name.substring(separator + 1), node.name);
+            }
+            return local;
+        }
+
+        public void writeTo(DataOutput out) throws IOException {
+            out.writeInt(VERSION);
+            out.writeUTF(packageName);
+            out.writeInt(imports.size());
+            for (Map.Entry<String, String> entry : imports.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+            writeNames(out, starImports);
+            out.writeInt(types.size());
+            for (TypeNode node : types) {
+                out.writeUTF(node.name);
+                writeNames(out, node.supertypes);
+                writeNames(out, node.interfaces);
+                writeNames(out, node.uses);
+                out.writeInt(node.responses);
+            }
+        }
+
+        // null si la contribution vient d'une autre version de la collecte
+        public static FileTypes readFrom(DataInput in) throws IOException {
+            if (in.readInt() != VERSION) return null;
+            String packageName = in.readUTF();
+            Map<String, String> imports = new HashMap<>();
+            for (int i = in.readInt(); i > 0; i--) imports.put(in.readUTF(), in.readUTF());
+            List<String> starImports = readNames(in);
+            List<TypeNode> types = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                types.add(new TypeNode(in.readUTF(), readNames(in), readNames(in), readNames(in), in.readInt()));
+            }
+            return new FileTypes(packageName, imports, starImports, types);
+        }
+
+        private static void writeNames(DataOutput out, List<String> names) throws IOException {
+            out.writeInt(names.size());
+            for (String name : names) out.writeUTF(name);
+        }
+
+        private static List<String> readNames(DataInput in) throws IOException {
+            int size = in.readInt();
+            List<String> names = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) names.add(in.readUTF());
+            return names;
+        }
+    }
+
+    /**
+     * Un type déclaré : supertypes par extends et par implements, types utilisés dans son corps
+     * (hors types imbriqués, qui sont leurs propres nœuds) et taille de son ensemble de réponse
+     */
+    static final class TypeNode {
+        final String name;
+        final List<String> supertypes;
+        final List<String> interfaces;
+        final List<String> uses;
+        final int responses;
+
+        TypeNode(String name, List<String> supertypes, List<String> interfaces, List<String> uses, int responses) {
+            this.name = name;
+            this.supertypes = supertypes;
+            this.interfaces = interfaces;
+            this.uses = uses;
+            this.responses = responses;
+        }
+    }
+
+    /**
+     * Contribution d'une CompilationUnit : un parcours par type, sans résolution
+     */
+    @SuppressWarnings("unchecked")
+    public static FileTypes collect(CompilationUnit cu) {
+        String packageName = cu.getPackageDeclaration().map(pkg -> pkg.getNameAsString()).orElse("");
+        Map<String, String> imports = new HashMap<>();
+        List<String> starImports = new ArrayList<>();
+        for (ImportDeclaration importDecl : cu.getImports()) {
+            if (importDecl.isStatic()) continue; // membres, pas des types
+            String fullName = importDecl.getNameAsString();
+            if (importDecl.isAsterisk()) {
+                starImports.add(fullName);
+            } else {
+                imports.put(fullName.substring(fullName.lastIndexOf('.') + 1), fullName);
+            }
+        }
+
+        List<TypeNode> types = new ArrayList<>();
+        for (TypeDeclaration<?> type : cu.findAll(TypeDeclaration.class)) {
+            List<String> supertypes = new ArrayList<>();
+            List<String> interfaces = new ArrayList<>();
+            if (type instanceof ClassOrInterfaceDeclaration) {
+                for (ClassOrInterfaceType extended : ((ClassOrInterfaceDeclaration) type).getExtendedTypes()) {
+                    supertypes.add(extended.getNameWithScope());
+                }
+            }
+            if (type instanceof NodeWithImplements) {
+                for (ClassOrInterfaceType implemented : ((NodeWithImplements<?>) type).getImplementedTypes()) {
+                    interfaces.add(implemented.getNameWithScope());
+                }
+            }
+
+            BodyReferences references = new BodyReferences();
+            Set<String> declaredMethods = new HashSet<>();
+            for (BodyDeclaration<?> member : type.getMembers()) {
+                if (member instanceof TypeDeclaration) continue;
+                if (member instanceof CallableDeclaration) {
+                    declaredMethods.add(((CallableDeclaration<?>) member).getNameAsString());
+                }
+                member.accept(references, null);
+            }
+            if (type instanceof EnumDeclaration) {
+                ((EnumDeclaration) type).getEntries().forEach(entry -> entry.accept(references, null));
+            }
+            // RFC : méthodes et constructeurs déclarés, plus les méthodes appelées sous un autre nom
+            int declared = (int) type.getMembers().stream().filter(m -> m instanceof CallableDeclaration).count();
+            references.calledMethods.removeAll(declaredMethods);
+
+            types.add(new TypeNode(ClassNames.of(type), supertypes, interfaces,
+                    new ArrayList<>(references.typeNames), declared + references.calledMethods.size()));
+        }
+        return new FileTypes(packageName, imports, starImports, types);
+    }
+
+    /**
+     * Noms de types et de méthodes référencés dans le corps d'un type, sans descendre dans
+     * les types déclarés à l'intérieur (classes locales comprises). Un NameExpr en majuscule
+     * est traité comme un nom de type (ex. FastMath dans FastMath.sqrt(x)).
+     */
+    private static final class BodyReferences extends VoidVisitorAdapter<Void> {
+        final Set<String> typeNames = new LinkedHashSet<>();
+        final Set<String> calledMethods = new HashSet<>();
+
+        @Override
+        public void visit(ClassOrInterfaceDeclaration n, Void arg) {
+        }
+
+        @Override
+        public void visit(EnumDeclaration n, Void arg) {
+        }
+
+        @Override
+        public void visit(RecordDeclaration n, Void arg) {
+        }
+
+        @Override
+        public void visit(AnnotationDeclaration n, Void arg) {
+        }
+
+        @Override
+        public void visit(ClassOrInterfaceType n, Void arg) {
+            typeNames.add(n.getNameWithScope());
+            // Arguments de type seulement : la portée fait partie du nom
+            n.getTypeArguments().ifPresent(arguments -> arguments.forEach(argument -> argument.accept(this, arg)));
+        }
+
+        @Override
+        public void visit(NameExpr n, Void arg) {
+            String name = n.getNameAsString();
+            if (Character.isUpperCase(name.charAt(0))) typeNames.add(name);
+        }
+
+        @Override
+        public void visit(MethodCallExpr n, Void arg) {
+            calledMethods.add(n.getNameAsString());
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(MarkerAnnotationExpr n, Void arg) {
+            typeNames.add(n.getNameAsString());
+        }
+
+        @Override
+        public void visit(SingleMemberAnnotationExpr n, Void arg) {
+            typeNames.add(n.getNameAsString());
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(NormalAnnotationExpr n, Void arg) {
+            typeNames.add(n.getNameAsString());
+            super.visit(n, arg);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package analyzers;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Résolution des noms de types d'un checkout, partagée par tous les analyseurs : types déclarés
+ * dans les racines sources, classes des jars du classpath et JDK (par réflexion).
+ * Un nom simple est résolu comme le fait javac : imports simples, types du fichier, même package,
+ * imports à la demande puis java.lang. Les recherches sont mémorisées dans un cache LRU borné.
+ *
+ * Le pipeline attache l'instance à chaque CompilationUnit ({@link #KEY}), voir {@link #of(CompilationUnit)}.
+ */
+public class TypeResolver {
+    public static final DataKey<TypeResolver> KEY = new DataKey<>() {
+    };
+
+    private static final int MEMO_SIZE = 20_000;
+    // Résolveurs des derniers checkouts : buggy et fixed d'un même bug, plus les tests en mode split
+    private static final int CHECKOUT_CACHE_SIZE = 4;
+    private static final Map<Path, TypeResolver> BY_CHECKOUT = new LinkedHashMap<>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, TypeResolver> eldest) {
+            return size() > CHECKOUT_CACHE_SIZE;
+        }
+    };
+
+    private final Set<String> projectTypes;
+    private final Set<String> classpathTypes;
+    private final Map<String, Boolean> jdkTypes = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MEMO_SIZE;
+        }
+    };
+    private final String fingerprint;
+
+    TypeResolver(Set<String> projectTypes, Set<String> classpathTypes) {
+        this.projectTypes = projectTypes;
+        this.classpathTypes = classpathTypes;
+        this.fingerprint = computeFingerprint(projectTypes, classpathTypes);
+    }
+
+    /**
+     * Résolveur du checkout, construit une seule fois puis réutilisé
+     */
+    public static TypeResolver forCheckout(Path checkout, List<Path> sourceRoots, Classpath classpath)
+            throws IOException, InterruptedException {
+        synchronized (BY_CHECKOUT) {
+            TypeResolver resolver = BY_CHECKOUT.get(checkout);
+            if (resolver == null) {
+                resolver = new TypeResolver(indexSources(sourceRoots), indexJars(classpath.jars()));
+                BY_CHECKOUT.put(checkout, resolver);
+            }
+            return resolver;
+        }
+    }
+
+    /**
+     * Oublie le résolveur d'un checkout dont le contenu a pu changer (mode serveur)
+     */
+    public static void invalidate(Path checkout) {
+        synchronized (BY_CHECKOUT) {
+            BY_CHECKOUT.remove(checkout);
+        }
+    }
+
+    /**
+     * Jars du checkout, calculés seulement si le résolveur n'est pas déjà en cache
+     */
+    public interface Classpath {
+        List<Path> jars() throws InterruptedException;
+    }
+
+    public static Optional<TypeResolver> of(CompilationUnit cu) {
+        return cu.containsData(KEY) ? Optional.of(cu.getData(KEY)) : Optional.empty();
+    }
+
+    /**
+     * Empreinte des types connus : les résultats résolus dépendent du reste du projet,
+     * le cache de métriques doit donc en tenir compte
+     */
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Nom qualifié du type désigné par name (simple ou qualifié) dans cu, si on le trouve
+     */
+    public Optional<String> resolve(CompilationUnit cu, String name) {
+        int generic = name.indexOf('<');
+        if (generic >= 0) name = name.substring(0, generic);
+        name = name.trim();
+
+        int dot = name.indexOf('.');
+        String first = dot < 0 ? name : name.substring(0, dot);
+        String rest = dot < 0 ? "" : name.substring(dot);
+
+        // Nom qualifié complet (java.io.IOException)
+        if (dot >= 0 && isKnown(name)) return Optional.of(name);
+
+        // Premier segment résolu comme type, le reste comme types imbriqués (Map.Entry)
+        for (ImportDeclaration imp : cu.getImports()) {
+            if (!imp.isAsterisk() && !imp.isStatic() && imp.getName().getIdentifier().equals(first)) {
+                return Optional.of(imp.getNameAsString() + rest);
+            }
+        }
+        for (TypeDeclaration<?> type : cu.findAll(TypeDeclaration.class)) {
+            if (type.getNameAsString().equals(first)) return Optional.of(ClassNames.of(type) + rest);
+        }
+        String pkg = cu.getPackageDeclaration().map(p -> p.getNameAsString() + ".").orElse("");
+        if (isKnown(pkg + first)) return Optional.of(pkg + first + rest);
+        for (ImportDeclaration imp : cu.getImports()) {
+            if (imp.isAsterisk() && !imp.isStatic() && isKnown(imp.getNameAsString() + "." + first)) {
+                return Optional.of(imp.getNameAsString() + "." + first + rest);
+            }
+        }
+        if (isKnown("java.lang." + first)) return Optional.of("java.lang." + first + rest);
+        return Optional.empty();
+    }
+
+    public boolean isKnown(String qualifiedName) {
+        if (projectTypes.contains(qualifiedName) || classpathTypes.contains(qualifiedName)) return true;
+        synchronized (jdkTypes) {
+            Boolean known = jdkTypes.get(qualifiedName);
+            if (known != null) return known;
+        }
+        boolean known = loadsFromJdk(qualifiedName);
+        synchronized (jdkTypes) {
+            jdkTypes.put(qualifiedName, known);
+        }
+        return known;
+    }
+
+    private static boolean loadsFromJdk(String qualifiedName) {
+        if (!qualifiedName.startsWith("java.") && !qualifiedName.startsWith("javax.")) return false;
+        // Les types imbriqués s'écrivent Outer$Inner pour la réflexion
+        String binaryName = qualifiedName;
+        while (true) {
+            try {
+                Class.forName(binaryName, false, ClassLoader.getPlatformClassLoader());
+                return true;
+            } catch (ClassNotFoundException | LinkageError e) {
+                int dot = binaryName.lastIndexOf('.');
+                if (dot < 0 || !Character.isUpperCase(binaryName.charAt(binaryName.lastIndexOf('.', dot - 1) + 1))) {
+                    return false;
+                }
+                binaryName = binaryName.substring(0, dot) + "$" + binaryName.substring(dot + 1);
+            }
+        }
+    }
+
+    // Types de premier niveau déduits des chemins : org/foo/Bar.java -> org.foo.Bar, sans parser
+    private static Set<String> indexSources(List<Path> sourceRoots) throws IOException {
+        Set<String> types = new HashSet<>();
+        for (Path root : sourceRoots) {
+            if (!Files.isDirectory(root)) continue;
+            try (var paths = Files.walk(root)) {
+                paths.filter(p -> p.toString().endsWith(".java")).forEach(p -> {
+                    String relative = root.relativize(p).toString().replace('\\', '/');
+                    types.add(relative.substring(0, relative.length() - ".java".length()).replace('/', '.'));
+                });
+            }
+        }
+        return types;
+    }
+
+    private static Set<String> indexJars(List<Path> classpath) {
+        Set<String> types = new HashSet<>();
+        for (Path jar : classpath) {
+            if (!jar.toString().endsWith(".jar") || !Files.isRegularFile(jar)) continue;
+            try (JarFile file = new JarFile(jar.toFile())) {
+                Enumeration<JarEntry> entries = file.entries();
+                while (entries.hasMoreElements()) {
+                    String entry = entries.nextElement().getName();
+                    if (entry.endsWith(".class") && !entry.contains("-")) {
+                        types.add(entry.substring(0, entry.length() - ".class".length()).replace('/', '.').replace('$', '.'));
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Jar illisible ignoré: " + jar + " (" + e.getMessage() + ")");
+            }
+        }
+        return types;
+    }
+
+    private static String computeFingerprint(Set<String> projectTypes, Set<String> classpathTypes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Set<String> types : List.of(projectTypes, classpathTypes)) {
+                for (String type : new TreeSet<>(types)) {
+                    digest.update(type.getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) '\n');
+                }
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
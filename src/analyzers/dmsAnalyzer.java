@@ -1,21 +1,23 @@
-
 package analyzers;
 
-import com.github.javaparser.JavaParser;
-import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.CallableDeclaration;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.stmt.*;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-public class dmsAnalyzer {
+public class dmsAnalyzer implements Analyzer {
     private final Path projectPath;
 
     // Poids de chaque composant du score
@@ -32,82 +34,205 @@ public class dmsAnalyzer {
         this.projectPath = projectPath;
     }
 
-    public Map<String, Map<String, String>> analyze() throws IOException {
-        JavaParser parser = new JavaParser();
-        Map<String, Map<String, String>> result = new HashMap<>();
+    public MetricTable analyze() throws IOException {
+        return new AnalysisPipeline(projectPath, this).run();
+    }
 
-        try (Stream<Path> paths = Files.walk(projectPath)) {
-            List<Path> javaFiles = paths
-                    .filter(p -> p.toString().endsWith(".java"))
-                    .collect(Collectors.toList());
+    @Override
+    public int version() {
+        return 2;
+    }
 
-            for (Path javaFile : javaFiles) {
-                try {
-                    ParseResult<CompilationUnit> resultCU = parser.parse(javaFile);
-                    if (!resultCU.isSuccessful() || resultCU.getResult().isEmpty()) continue;
+    @Override
+    public void visit(CompilationUnit cu, MetricSink sink) {
+        // Score de chaque méthode calculé une seule fois, même si elle appartient à une classe imbriquée
+        Map<MethodDeclaration, Double> methodScores = new IdentityHashMap<>();
+        ComplexityVisitor counter = new ComplexityVisitor(cu, TypeResolver.of(cu).orElse(null));
+        for (MethodDeclaration method : cu.findAll(MethodDeclaration.class)) {
+            counter.reset();
+            method.accept(counter, null);
+
+            double rawScore = (counter.oomr * OOMR_WEIGHT)
+                    + (counter.cyclo * CYCLO_WEIGHT)
+                    + (counter.dangerCalls * DANGER_WEIGHT);
+
+            double normalizedScore = rawScore / (
+                    (MAX_OOMR * OOMR_WEIGHT) +
+                            (MAX_CYCLO * CYCLO_WEIGHT) +
+                            (MAX_DANGER * DANGER_WEIGHT)
+            );
+            methodScores.put(method, Math.min(normalizedScore, 1.0));
+        }
 
-                    CompilationUnit cu = resultCU.getResult().get();
+        List<ClassOrInterfaceDeclaration> classes = cu.findAll(ClassOrInterfaceDeclaration.class);
+        for (ClassOrInterfaceDeclaration clazz : classes) {
+            List<MethodDeclaration> methods = clazz.findAll(MethodDeclaration.class);
 
-                    List<ClassOrInterfaceDeclaration> classes = cu.findAll(ClassOrInterfaceDeclaration.class);
-                    for (ClassOrInterfaceDeclaration clazz : classes) {
-                        String className = clazz.getNameAsString();
+            double cumulativeScore = 0.0;
+            int methodCount = 0;
 
-                        List<MethodDeclaration> methods = clazz.findAll(MethodDeclaration.class);
+            for (MethodDeclaration method : methods) {
+                cumulativeScore += methodScores.get(method);
+                methodCount++;
+            }
 
-                        double cumulativeScore = 0.0;
-                        int methodCount = 0;
+            double finalScore = (methodCount > 0) ? cumulativeScore / methodCount : 0.0;
 
-                        for (MethodDeclaration method : methods) {
-                            int oomrTotal = method.findAll(MethodCallExpr.class).size();
+            sink.put(sink.classId(ClassNames.of(clazz)), Metric.DMS_SCORE, finalScore);
+        }
+    }
+
+    /**
+     * Compte en un seul parcours les appels (OOMR), les noeuds cyclomatiques et les appels critiques
+     */
+    private static final class ComplexityVisitor extends VoidVisitorAdapter<Void> {
+        private final CompilationUnit cu;
+        private final TypeResolver resolver;
+        int oomr;
+        int cyclo;
+        int dangerCalls;
+
+        ComplexityVisitor(CompilationUnit cu, TypeResolver resolver) {
+            this.cu = cu;
+            this.resolver = resolver;
+        }
 
-                            int cycloTotal = method.findAll(IfStmt.class).size()
-                                    + method.findAll(ForStmt.class).size()
-                                    + method.findAll(ForEachStmt.class).size()
-                                    + method.findAll(WhileStmt.class).size()
-                                    + method.findAll(DoStmt.class).size()
-                                    + method.findAll(SwitchStmt.class).size();
+        void reset() {
+            oomr = 0;
+            cyclo = 0;
+            dangerCalls = 0;
+        }
 
-                            int dangerCalls = 0;
-                            for (MethodCallExpr call : method.findAll(MethodCallExpr.class)) {
-                                if (isCriticalMethod(call)) dangerCalls++;
-                            }
+        @Override
+        public void visit(MethodCallExpr call, Void arg) {
+            oomr++;
+            if (resolver == null ? isCriticalMethod(call) : isCriticalMethod(call, cu, resolver)) dangerCalls++;
+            super.visit(call, arg);
+        }
 
-                            double rawScore = (oomrTotal * OOMR_WEIGHT)
-                                    + (cycloTotal * CYCLO_WEIGHT)
-                                    + (dangerCalls * DANGER_WEIGHT);
+        @Override
+        public void visit(IfStmt stmt, Void arg) {
+            cyclo++;
+            super.visit(stmt, arg);
+        }
 
-                            double normalizedScore = rawScore / (
-                                    (MAX_OOMR * OOMR_WEIGHT) +
-                                            (MAX_CYCLO * CYCLO_WEIGHT) +
-                                            (MAX_DANGER * DANGER_WEIGHT)
-                            );
+        @Override
+        public void visit(ForStmt stmt, Void arg) {
+            cyclo++;
+            super.visit(stmt, arg);
+        }
 
-                            cumulativeScore += Math.min(normalizedScore, 1.0);
-                            methodCount++;
-                        }
+        @Override
+        public void visit(ForEachStmt stmt, Void arg) {
+            cyclo++;
+            super.visit(stmt, arg);
+        }
 
-                        double finalScore = (methodCount > 0) ? cumulativeScore / methodCount : 0.0;
+        @Override
+        public void visit(WhileStmt stmt, Void arg) {
+            cyclo++;
+            super.visit(stmt, arg);
+        }
 
-                        Map<String, String> metrics = new HashMap<>();
-                        metrics.put("dms_score", String.format(Locale.US, "%.4f", finalScore));
-                        result.put(className, metrics);
-                    }
+        @Override
+        public void visit(DoStmt stmt, Void arg) {
+            cyclo++;
+            super.visit(stmt, arg);
+        }
 
-                } catch (Exception e) {
-                    System.err.println("Erreur lors de l'analyse du fichier: " + javaFile);
-                    e.printStackTrace();
-                }
-            }
+        @Override
+        public void visit(SwitchStmt stmt, Void arg) {
+            cyclo++;
+            super.visit(stmt, arg);
         }
+    }
+
+    // Appels critiques reconnus sur le nom de la méthode et le nom de son scope, sans pretty-print
+    private static boolean isCriticalMethod(MethodCallExpr call) {
+        String name = call.getNameAsString();
+        switch (name) {
+            case "exit":
+                return "System".equals(scopeName(call));
+            case "sleep":
+                return "Thread".equals(scopeName(call));
+            case "getRuntime":
+                return "Runtime".equals(scopeName(call));
+            case "exec":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Dernier identifiant du scope : "System" pour System.exit() comme pour java.lang.System.exit()
+    private static String scopeName(MethodCallExpr call) {
+        if (call.getScope().isEmpty()) return null;
+        Expression scope = call.getScope().get();
+        if (scope.isNameExpr()) return scope.asNameExpr().getNameAsString();
+        if (scope.isFieldAccessExpr()) return scope.asFieldAccessExpr().getNameAsString();
+        return null;
+    }
+
+    /**
+     * Variante résolue : le scope doit désigner le type du JDK (pas une classe System du projet),
+     * et exec() n'est compté que sur un Runtime
+     */
+    private static boolean isCriticalMethod(MethodCallExpr call, CompilationUnit cu, TypeResolver resolver) {
+        switch (call.getNameAsString()) {
+            case "exit":
+                return isScopeType(call, cu, resolver, "java.lang.System");
+            case "sleep":
+                return isScopeType(call, cu, resolver, "java.lang.Thread");
+            case "getRuntime":
+                return isScopeType(call, cu, resolver, "java.lang.Runtime");
+            case "exec":
+                return isRuntimeReceiver(call, cu, resolver);
+            default:
+                return false;
+        }
+    }
 
-        return result;
+    private static boolean isScopeType(MethodCallExpr call, CompilationUnit cu, TypeResolver resolver, String type) {
+        if (call.getScope().isEmpty()) return false;
+        Expression scope = call.getScope().get();
+        if (!scope.isNameExpr() && !scope.isFieldAccessExpr()) return false;
+        return resolver.resolve(cu, scope.toString()).map(type::equals).orElse(false);
     }
 
-    private boolean isCriticalMethod(MethodCallExpr call) {
-        String callStr = call.toString();
-        return callStr.contains("System.exit")
-                || callStr.contains("Thread.sleep")
-                || callStr.contains("Runtime.getRuntime")
-                || callStr.contains("exec");
+    // Runtime.getRuntime().exec(...) ou variable/champ déclaré Runtime ; receveur inconnu : on garde l'appel
+    private static boolean isRuntimeReceiver(MethodCallExpr call, CompilationUnit cu, TypeResolver resolver) {
+        if (call.getScope().isEmpty()) return false;
+        Expression scope = call.getScope().get();
+        if (scope.isMethodCallExpr()) {
+            MethodCallExpr inner = scope.asMethodCallExpr();
+            return inner.getNameAsString().equals("getRuntime") && isScopeType(inner, cu, resolver, "java.lang.Runtime");
+        }
+        if (!scope.isNameExpr()) return true;
+        Optional<Type> declared = declaredType(call, scope.asNameExpr().getNameAsString());
+        return declared.map(type -> resolver.resolve(cu, type.asString()).map("java.lang.Runtime"::equals).orElse(false))
+                .orElse(true);
+    }
+
+    // Type déclaré d'une variable locale, d'un paramètre ou d'un champ de la classe englobante
+    @SuppressWarnings("unchecked")
+    private static Optional<Type> declaredType(MethodCallExpr call, String name) {
+        CallableDeclaration<?> callable = call.findAncestor(CallableDeclaration.class).orElse(null);
+        if (callable != null) {
+            for (Parameter parameter : callable.getParameters()) {
+                if (parameter.getNameAsString().equals(name)) return Optional.of(parameter.getType());
+            }
+            for (VariableDeclarator variable : callable.findAll(VariableDeclarator.class)) {
+                if (variable.getNameAsString().equals(name)) return Optional.of(variable.getType());
+            }
+        }
+        Optional<ClassOrInterfaceDeclaration> clazz = call.findAncestor(ClassOrInterfaceDeclaration.class);
+        if (clazz.isPresent()) {
+            for (FieldDeclaration field : clazz.get().getFields()) {
+                for (VariableDeclarator variable : field.getVariables()) {
+                    if (variable.getNameAsString().equals(name)) return Optional.of(variable.getType());
+                }
+            }
+        }
+        return Optional.empty();
     }
 }
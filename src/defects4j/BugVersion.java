@@ -0,0 +1,51 @@
+package defects4j;
+
+import java.nio.file.Path;
+
+/**
+ * Une version Defects4J à analyser : projet, identifiant de bug et "b" (buggy) ou "f" (fixed).
+ */
+public final class BugVersion {
+    private final String project;
+    private final int bugId;
+    private final String version;
+
+    public BugVersion(String project, int bugId, String version) {
+        this.project = project;
+        this.bugId = bugId;
+        this.version = version;
+    }
+
+    public String getProject() {
+        return project;
+    }
+
+    public int getBugId() {
+        return bugId;
+    }
+
+    // "b" ou "f", tel qu'attendu par defects4j checkout -v
+    public String getVersion() {
+        return version;
+    }
+
+    // Identifiant du bug, ex. "Math-1"
+    public String getPid() {
+        return project + "-" + bugId;
+    }
+
+    // "buggy" ou "fixed", tel qu'écrit dans le CSV
+    public String getLabel() {
+        return version.equals("b") ? "buggy" : "fixed";
+    }
+
+    // Dossier de checkout, ex. <projectsPath>/Math-1-buggy
+    public Path checkoutPath(Path projectsPath) {
+        return projectsPath.resolve(getPid() + "-" + getLabel());
+    }
+
+    @Override
+    public String toString() {
+        return getPid() + " (" + getLabel() + ")";
+    }
+}
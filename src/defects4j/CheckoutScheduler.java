@@ -0,0 +1,119 @@
+package defects4j;
+
+import analyzers.RunMetrics;
+import analyzers.SourceTree;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Lance plusieurs checkouts en parallèle et les livre à l'analyse via une file bornée,
+ * dans l'ordre de la liste : l'analyse d'une version tourne pendant que les suivantes
+ * sont encore en cours de checkout. Pour un projet lu depuis son dépôt git (withGitSources),
+ * le checkout est remplacé par la construction de l'arbre de la version, rien n'est écrit sur le disque.
+ */
+public class CheckoutScheduler {
+    /**
+     * Traitement d'une version une fois son checkout terminé (checkoutPath == null en cas d'échec).
+     * Avec un arbre git, checkoutPath est le chemin qu'aurait le checkout, qui n'existe pas.
+     */
+    public interface VersionHandler {
+        void handle(BugVersion bug, Path checkoutPath, SourceTree tree) throws Exception;
+    }
+
+    private record Checkout(Path path, SourceTree tree) {
+    }
+
+    private static final class Pending {
+        final BugVersion bug;
+        final Future<Checkout> checkout;
+
+        Pending(BugVersion bug, Future<Checkout> checkout) {
+            this.bug = bug;
+            this.checkout = checkout;
+        }
+    }
+
+    private static final Pending END = new Pending(null, null);
+
+    private final Defects4J defects4j;
+    private final int parallelCheckouts;
+    private final int queueCapacity;
+    private RunMetrics metrics = new RunMetrics();
+    private Map<String, GitSources> gitSources = Map.of();
+
+    public CheckoutScheduler(Defects4J defects4j, int parallelCheckouts, int queueCapacity) {
+        this.defects4j = defects4j;
+        this.parallelCheckouts = Math.max(1, parallelCheckouts);
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /**
+     * Temps des checkouts et temps passé à les attendre, dans l'instrumentation du run
+     */
+    public CheckoutScheduler withRunMetrics(RunMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Projets lus dans leur dépôt git plutôt que checkoutés, par nom de projet
+     */
+    public CheckoutScheduler withGitSources(Map<String, GitSources> gitSources) {
+        this.gitSources = gitSources;
+        return this;
+    }
+
+    public void run(List<BugVersion> bugs, VersionHandler handler) throws Exception {
+        ExecutorService checkouts = Executors.newFixedThreadPool(parallelCheckouts);
+        BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        // Producteur : soumet les checkouts, bloque quand la file est pleine
+        Thread producer = new Thread(() -> {
+            try {
+                for (BugVersion bug : bugs) {
+                    Path path = bug.checkoutPath(defects4j.getProjectsPath());
+                    queue.put(new Pending(bug, checkouts.submit(() -> checkout(bug, path))));
+                }
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "checkout-scheduler");
+        producer.setDaemon(true);
+        producer.start();
+
+        try {
+            for (Pending pending = queue.take(); pending != END; pending = queue.take()) {
+                Checkout checkout;
+                RunMetrics.Span wait = metrics.start("checkout-wait");
+                try {
+                    checkout = pending.checkout.get();
+                } catch (ExecutionException e) {
+                    System.err.println("Erreur pendant le checkout de " + pending.bug + ": " + e.getCause());
+                    checkout = null;
+                }
+                wait.stop();
+                handler.handle(pending.bug, checkout == null ? null : checkout.path(),
+                        checkout == null ? null : checkout.tree());
+            }
+        } finally {
+            producer.interrupt();
+            checkouts.shutdownNow();
+        }
+    }
+
+    // Le temps CPU mesuré est celui du thread, pas du processus defects4j : seul le temps mur compte ici
+    private Checkout checkout(BugVersion bug, Path path) throws Exception {
+        GitSources git = gitSources.get(bug.getProject());
+        RunMetrics.Span span = metrics.start(git != null ? "git-tree" : "checkout");
+        try {
+            if (git != null) return new Checkout(path, git.tree(bug));
+            return defects4j.checkout(bug, path) ? new Checkout(path, null) : null;
+        } finally {
+            span.stop();
+        }
+    }
+}
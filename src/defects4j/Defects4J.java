@@ -0,0 +1,134 @@
+package defects4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Accès à l'installation Defects4J : liste des bugs actifs et checkout des versions.
+ */
+public class Defects4J {
+    private final Path command;
+    private final Path projectsPath;
+
+    public Defects4J(Path command, Path projectsPath) {
+        this.command = command;
+        this.projectsPath = projectsPath;
+    }
+
+    public Path getProjectsPath() {
+        return projectsPath;
+    }
+
+    /**
+     * Identifiants de tous les bugs actifs du projet, lus dans active-bugs.csv
+     * ou, à défaut, via "defects4j bids"
+     */
+    public List<Integer> bugIds(String project) throws IOException, InterruptedException {
+        List<Integer> ids = new ArrayList<>();
+        Path activeBugs = projectsPath.resolve(project).resolve("active-bugs.csv");
+        if (Files.exists(activeBugs)) {
+            for (String line : Files.readAllLines(activeBugs, StandardCharsets.UTF_8)) {
+                String id = line.split(",", 2)[0].trim();
+                if (!id.isEmpty() && Character.isDigit(id.charAt(0))) ids.add(Integer.parseInt(id));
+            }
+        } else {
+            Process process = new ProcessBuilder(command.toString(), "bids", "-p", project)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) ids.add(Integer.parseInt(line.trim()));
+                }
+            }
+            if (process.waitFor() != 0) {
+                throw new IOException("defects4j bids a échoué pour " + project);
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Révision du dépôt du projet pour une version ("b" ou "f"), colonnes revision.id.buggy
+     * et revision.id.fixed d'active-bugs.csv
+     */
+    public String revision(String project, int bugId, String version) throws IOException {
+        Path activeBugs = projectsPath.resolve(project).resolve("active-bugs.csv");
+        List<String> lines = Files.readAllLines(activeBugs, StandardCharsets.UTF_8);
+        List<String> header = lines.isEmpty() ? List.of() : Arrays.asList(lines.get(0).split(","));
+        int column = header.indexOf(version.equals("b") ? "revision.id.buggy" : "revision.id.fixed");
+        if (column < 0) throw new IOException("Colonne de révision absente de " + activeBugs);
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split(",");
+            if (fields[0].trim().equals(String.valueOf(bugId)) && column < fields.length) return fields[column].trim();
+        }
+        throw new IOException("Bug " + project + "-" + bugId + " absent de " + activeBugs);
+    }
+
+    /**
+     * Patch qui donne la version buggy à partir de la fixed (patches/<id>.src.patch)
+     */
+    public Path sourcePatch(String project, int bugId) {
+        return projectsPath.resolve(project).resolve("patches").resolve(bugId + ".src.patch");
+    }
+
+    /**
+     * Classes modifiées par le correctif (modified_classes/<id>.src), vide si la liste n'existe pas
+     */
+    public List<String> modifiedClasses(String project, int bugId) throws IOException {
+        Path list = projectsPath.resolve(project).resolve("modified_classes").resolve(bugId + ".src");
+        if (!Files.exists(list)) return List.of();
+        List<String> classes = new ArrayList<>();
+        for (String line : Files.readAllLines(list, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) classes.add(line.trim());
+        }
+        return classes;
+    }
+
+    /**
+     * Jars du classpath de compilation du checkout ("defects4j export -p cp.compile"),
+     * ou à défaut les jars présents dans le checkout (lib/, target/dependency/...)
+     */
+    public List<Path> compileClasspath(Path checkout) throws InterruptedException {
+        List<Path> jars = new ArrayList<>();
+        try {
+            Process process = new ProcessBuilder(command.toString(), "export", "-p", "cp.compile", "-w", checkout.toString())
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            if (process.waitFor() == 0 && !output.isEmpty()) {
+                for (String entry : output.split(File.pathSeparator)) {
+                    if (entry.endsWith(".jar")) jars.add(Paths.get(entry));
+                }
+                return jars;
+            }
+        } catch (IOException e) {
+            // Defects4J absent : on se contente des jars du checkout
+        }
+        try (var paths = Files.walk(checkout)) {
+            paths.filter(p -> p.toString().endsWith(".jar") && Files.isRegularFile(p)).sorted().forEach(jars::add);
+        } catch (IOException e) {
+            System.err.println("Recherche des jars impossible dans " + checkout + " (" + e.getMessage() + ")");
+        }
+        return jars;
+    }
+
+    /**
+     * Checkout du projet/version dans le dossier spécifié
+     */
+    public boolean checkout(BugVersion bug, Path path) throws IOException, InterruptedException {
+        if (Files.exists(path)) return true;
+        System.out.println("Checkout dans " + path);
+        Process process = new ProcessBuilder(
+                command.toString(), "checkout",
+                "-p", bug.getProject(),
+                "-v", bug.getBugId() + bug.getVersion(),
+                "-w", path.toString()
+        ).inheritIO().start();
+        return process.waitFor() == 0;
+    }
+}
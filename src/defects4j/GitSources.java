@@ -0,0 +1,286 @@
+package defects4j;
+
+import analyzers.SourceTree;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Sources des versions lues directement dans le dépôt git du projet, sans checkout sur le disque.
+ * La version fixed est l'arbre de revision.id.fixed ; comme Defects4J, la version buggy est cet arbre
+ * auquel on applique patches/<id>.src.patch, dans un index temporaire (ou, sans patch, revision.id.buggy).
+ * Les blobs sont lus par des "git cat-file --batch", un par thread qui lit en même temps, et gardés
+ * en LRU bornée en octets, par identifiant : un fichier inchangé entre deux versions n'est lu qu'une fois.
+ */
+public class GitSources implements Closeable {
+    private final Defects4J defects4j;
+    private final Path gitDir;
+    // Blobs créés par l'application des patchs : hors du dépôt, supprimés à la fermeture
+    private final Path objects;
+    private final long maxBytes;
+    private final LinkedHashMap<String, ByteBuffer> blobs = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    // Lecteurs libres ; un lecteur n'est utilisé que par un thread à la fois, hors du verrou de la LRU
+    private final Deque<CatFile> idleReaders = new ArrayDeque<>();
+    private boolean closed;
+
+    public GitSources(Defects4J defects4j, Path repository, long maxBytes) throws IOException {
+        this.defects4j = defects4j;
+        this.gitDir = Files.isDirectory(repository.resolve(".git")) ? repository.resolve(".git") : repository;
+        this.objects = Files.createTempDirectory("d4j-objects");
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Arbre des fichiers .java de la version, avec leurs tailles, sans lire leur contenu
+     */
+    public SourceTree tree(BugVersion bug) throws IOException, InterruptedException {
+        String fixed = defects4j.revision(bug.getProject(), bug.getBugId(), "f");
+        Path patch = defects4j.sourcePatch(bug.getProject(), bug.getBugId());
+        if (bug.getVersion().equals("f")) return revisionTree(fixed);
+        if (!Files.exists(patch)) return revisionTree(defects4j.revision(bug.getProject(), bug.getBugId(), "b"));
+
+        Path index = Files.createTempFile(objects, "index", "");
+        Files.delete(index); // git refuse un index vide
+        try {
+            git(index, "read-tree", fixed);
+            // Le patch s'applique normalement à fixed ; un patch rangé dans l'autre sens est appliqué en inverse
+            try {
+                git(index, "apply", "--cached", patch.toString());
+            } catch (IOException e) {
+                git(index, "apply", "--cached", "-R", patch.toString());
+            }
+            return new Tree(withSizes(parse(git(index, "ls-files", "-s", "-z"), false)));
+        } finally {
+            Files.deleteIfExists(index);
+        }
+    }
+
+    private Tree revisionTree(String revision) throws IOException, InterruptedException {
+        return new Tree(parse(git(null, "ls-tree", "-r", "-z", "-l", "--full-tree", revision), true));
+    }
+
+    private record Blob(String id, long size) {
+    }
+
+    /**
+     * Entrées "mode type id taille\tchemin" (ls-tree -l) ou "mode id étape\tchemin" (ls-files -s, taille -1),
+     * séparées par des NUL
+     */
+    private static Map<String, Blob> parse(byte[] listing, boolean lsTree) {
+        Map<String, Blob> files = new TreeMap<>();
+        for (String entry : new String(listing, StandardCharsets.UTF_8).split("\0")) {
+            int tab = entry.indexOf('\t');
+            if (tab < 0) continue;
+            String path = entry.substring(tab + 1);
+            // La taille de ls-tree -l est alignée à droite par des espaces
+            String[] fields = entry.substring(0, tab).trim().split(" +");
+            if (!path.endsWith(".java") || (lsTree && !fields[1].equals("blob"))) continue;
+            files.put(path, lsTree ? new Blob(fields[2], Long.parseLong(fields[3])) : new Blob(fields[1], -1));
+        }
+        return files;
+    }
+
+    /**
+     * Tailles des blobs d'un index, en un seul "git cat-file --batch-check" : "<id> blob <taille>"
+     */
+    private Map<String, Blob> withSizes(Map<String, Blob> files) throws IOException, InterruptedException {
+        StringBuilder ids = new StringBuilder();
+        for (Blob blob : files.values()) ids.append(blob.id()).append('\n');
+        Map<String, Long> sizes = new HashMap<>();
+        byte[] output = git(null, ids.toString().getBytes(StandardCharsets.US_ASCII), "cat-file", "--batch-check");
+        for (String line : new String(output, StandardCharsets.US_ASCII).split("\n")) {
+            String[] fields = line.split(" ");
+            if (fields.length == 3) sizes.put(fields[0], Long.parseLong(fields[2]));
+        }
+        Map<String, Blob> sized = new TreeMap<>();
+        for (Map.Entry<String, Blob> file : files.entrySet()) {
+            Long size = sizes.get(file.getValue().id());
+            if (size == null) throw new IOException("Objet git introuvable: " + file.getValue().id());
+            sized.put(file.getKey(), new Blob(file.getValue().id(), size));
+        }
+        return sized;
+    }
+
+    private final class Tree implements SourceTree {
+        private final Map<String, Blob> files;
+
+        Tree(Map<String, Blob> files) {
+            this.files = files;
+        }
+
+        @Override
+        public Collection<String> javaFiles() {
+            return files.keySet();
+        }
+
+        @Override
+        public String contentId(String relativePath) {
+            Blob blob = files.get(relativePath);
+            return blob == null ? null : blob.id();
+        }
+
+        @Override
+        public long size(String relativePath) throws IOException {
+            return entry(relativePath).size();
+        }
+
+        @Override
+        public ByteBuffer content(String relativePath) throws IOException {
+            return blob(entry(relativePath).id());
+        }
+
+        private Blob entry(String relativePath) throws IOException {
+            Blob blob = files.get(relativePath);
+            if (blob == null) throw new NoSuchFileException(relativePath);
+            return blob;
+        }
+    }
+
+    private ByteBuffer blob(String id) throws IOException {
+        synchronized (this) {
+            ByteBuffer cached = blobs.get(id);
+            if (cached != null) return cached.duplicate();
+        }
+
+        CatFile reader = acquire();
+        byte[] content;
+        try {
+            content = reader.read(id);
+        } catch (IOException e) {
+            // Flux désynchronisé : le lecteur n'est pas remis dans le pool
+            reader.close();
+            throw e;
+        }
+        release(reader);
+
+        ByteBuffer blob = ByteBuffer.wrap(content).asReadOnlyBuffer();
+        synchronized (this) {
+            // Lu en même temps par un autre thread : une seule entrée
+            ByteBuffer previous = blobs.put(id, blob);
+            if (previous != null) totalBytes -= previous.capacity();
+            totalBytes += content.length;
+            Iterator<Map.Entry<String, ByteBuffer>> eldest = blobs.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                totalBytes -= eldest.next().getValue().capacity();
+                eldest.remove();
+            }
+        }
+        return blob.duplicate();
+    }
+
+    private synchronized CatFile acquire() throws IOException {
+        if (closed) throw new IOException("Dépôt git fermé: " + gitDir);
+        CatFile reader = idleReaders.poll();
+        if (reader == null) {
+            reader = new CatFile(command(null, "cat-file", "--batch")
+                    .redirectError(ProcessBuilder.Redirect.INHERIT).start());
+        }
+        return reader;
+    }
+
+    private synchronized void release(CatFile reader) {
+        if (closed) {
+            reader.close();
+        } else {
+            idleReaders.push(reader);
+        }
+    }
+
+    private static final class CatFile {
+        private final Process process;
+        private final OutputStream in;
+        private final BufferedInputStream out;
+
+        CatFile(Process process) {
+            this.process = process;
+            this.in = process.getOutputStream();
+            this.out = new BufferedInputStream(process.getInputStream());
+        }
+
+        byte[] read(String id) throws IOException {
+            in.write((id + "\n").getBytes(StandardCharsets.US_ASCII));
+            in.flush();
+            // "<id> blob <taille>\n<contenu>\n", ou "<id> missing\n"
+            String[] header = readLine(out).split(" ");
+            if (header.length < 3) throw new IOException("Objet git introuvable: " + id);
+            byte[] content = out.readNBytes(Integer.parseInt(header[2]));
+            if (out.read() != '\n') throw new IOException("Réponse inattendue de git cat-file pour " + id);
+            return content;
+        }
+
+        void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // le processus est arrêté de toute façon
+            }
+            process.destroy();
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int b = in.read(); b != '\n'; b = in.read()) {
+            if (b < 0) throw new EOFException("git cat-file s'est arrêté");
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private byte[] git(Path index, String... args) throws IOException, InterruptedException {
+        return git(index, null, args);
+    }
+
+    private byte[] git(Path index, byte[] input, String... args) throws IOException, InterruptedException {
+        // stderr dans un fichier : git ne peut pas bloquer sur ce flux pendant qu'on lit stdout
+        Path stderr = Files.createTempFile(objects, "stderr", "");
+        Path stdin = input == null ? null : Files.write(Files.createTempFile(objects, "stdin", ""), input);
+        try {
+            ProcessBuilder builder = command(index, args).redirectError(stderr.toFile());
+            if (stdin != null) builder.redirectInput(stdin.toFile());
+            Process process = builder.start();
+            byte[] output;
+            try (InputStream out = process.getInputStream()) {
+                output = out.readAllBytes();
+            }
+            if (process.waitFor() != 0) {
+                throw new IOException("git " + String.join(" ", args) + " a échoué: "
+                        + Files.readString(stderr, StandardCharsets.UTF_8).trim());
+            }
+            return output;
+        } finally {
+            Files.deleteIfExists(stderr);
+            if (stdin != null) Files.deleteIfExists(stdin);
+        }
+    }
+
+    // Les objets écrits (blobs des patchs) vont dans le dossier temporaire, ceux du dépôt restent lisibles
+    private ProcessBuilder command(Path index, String... args) {
+        List<String> command = new ArrayList<>(List.of("git"));
+        command.addAll(List.of(args));
+        ProcessBuilder builder = new ProcessBuilder(command);
+        Map<String, String> env = builder.environment();
+        env.put("GIT_DIR", gitDir.toString());
+        env.put("GIT_OBJECT_DIRECTORY", objects.toString());
+        env.put("GIT_ALTERNATE_OBJECT_DIRECTORIES", gitDir.resolve("objects").toString());
+        if (index != null) env.put("GIT_INDEX_FILE", index.toString());
+        return builder;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        // Un lecteur en cours de lecture est fermé à sa remise dans le pool
+        closed = true;
+        for (CatFile reader : idleReaders) reader.close();
+        idleReaders.clear();
+        try (var paths = Files.walk(objects)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
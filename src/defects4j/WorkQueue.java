@@ -0,0 +1,123 @@
+package defects4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * File de travail sur disque partagée par les workers d'un sweep (processus locaux ou machines
+ * montant le même dossier). Une tâche est un fichier pending/NNNNN.task listant ses versions ;
+ * un worker la réclame par un move atomique vers claimed/, puis la déplace dans done/ une fois
+ * ses sorties partielles écrites dans results/. L'ordre des numéros est l'ordre du CSV final.
+ */
+public class WorkQueue {
+    /**
+     * Tâche réclamée : son nom (ex. "00042") et les versions à analyser, dans l'ordre
+     */
+    public record Task(String name, List<BugVersion> bugs) {
+    }
+
+    private final Path pending;
+    private final Path claimed;
+    private final Path done;
+    private final Path results;
+
+    public WorkQueue(Path dir) throws IOException {
+        this.pending = Files.createDirectories(dir.resolve("pending"));
+        this.claimed = Files.createDirectories(dir.resolve("claimed"));
+        this.done = Files.createDirectories(dir.resolve("done"));
+        this.results = Files.createDirectories(dir.resolve("results"));
+    }
+
+    /**
+     * Ajoute les tâches si la file est vide ; sinon reprend un sweep interrompu
+     * en remettant en attente les tâches réclamées par des workers disparus
+     */
+    public boolean initialize(List<List<BugVersion>> tasks) throws IOException {
+        if (!isEmpty(pending) || !isEmpty(claimed) || !isEmpty(done)) {
+            for (Path task : list(claimed)) {
+                Files.move(task, pending.resolve(task.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+            }
+            return false;
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            List<String> lines = new ArrayList<>();
+            for (BugVersion bug : tasks.get(i)) {
+                lines.add(bug.getProject() + "," + bug.getBugId() + "," + bug.getVersion());
+            }
+            // Écrite à côté puis déplacée : un worker ne voit jamais de tâche incomplète
+            Path tmp = pending.resolve(String.format("%05d.tmp", i));
+            Files.write(tmp, lines, StandardCharsets.UTF_8);
+            Files.move(tmp, pending.resolve(String.format("%05d.task", i)), StandardCopyOption.ATOMIC_MOVE);
+        }
+        return true;
+    }
+
+    /**
+     * Réclame la prochaine tâche en attente, null quand il n'y en a plus
+     */
+    public Task claim() throws IOException {
+        for (Path task : list(pending)) {
+            Path target = claimed.resolve(task.getFileName());
+            try {
+                Files.move(task, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                continue; // prise par un autre worker
+            }
+            List<BugVersion> bugs = new ArrayList<>();
+            for (String line : Files.readAllLines(target, StandardCharsets.UTF_8)) {
+                String[] fields = line.split(",");
+                if (fields.length == 3) bugs.add(new BugVersion(fields[0], Integer.parseInt(fields[1]), fields[2]));
+            }
+            return new Task(taskName(target), bugs);
+        }
+        return null;
+    }
+
+    public void complete(Task task) throws IOException {
+        Files.move(claimed.resolve(task.name() + ".task"), done.resolve(task.name() + ".task"),
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Sortie partielle d'une tâche, ex. result(task, ".csv") -> results/00042.csv
+     */
+    public Path result(Task task, String suffix) {
+        return results.resolve(task.name() + suffix);
+    }
+
+    /**
+     * Noms des tâches terminées, dans l'ordre de la file
+     */
+    public List<String> completedTasks() throws IOException {
+        List<String> names = new ArrayList<>();
+        for (Path task : list(done)) names.add(taskName(task));
+        return names;
+    }
+
+    public int remaining() throws IOException {
+        return list(pending).size() + list(claimed).size();
+    }
+
+    public Path getResultsDir() {
+        return results;
+    }
+
+    private static String taskName(Path task) {
+        String file = task.getFileName().toString();
+        return file.substring(0, file.length() - ".task".length());
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".task")).sorted().toList();
+        }
+    }
+
+    private static boolean isEmpty(Path dir) throws IOException {
+        return list(dir).isEmpty();
+    }
+}
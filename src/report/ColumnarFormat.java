@@ -0,0 +1,58 @@
+package report;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Constantes et encodages partagés par ColumnarWriter et ColumnarReader.
+ *
+ * Fichier : MAGIC, FORMAT_VERSION, nombre de métriques puis (nom, type) de chacune, puis des groupes
+ * de lignes terminés par un nombre de lignes -1. Chaque groupe contient : nombre de lignes, nouvelles
+ * entrées du dictionnaire (projets, versions et classes partagent un seul dictionnaire), colonnes
+ * project et version en (id, longueur) de plages, colonne class en ids, puis une colonne par métrique :
+ * un octet d'encodage, le bitmap des valeurs présentes et les valeurs présentes.
+ */
+final class ColumnarFormat {
+    static final int MAGIC = 0x44344A4D; // "D4JM"
+    static final int FORMAT_VERSION = 1;
+    static final int ROW_GROUP = 4096;
+    static final int END = -1;
+
+    // Types de colonnes, repris de Metric.Kind
+    static final byte KIND_COUNT = 0;
+    static final byte KIND_RATE = 1;
+
+    // Encodage d'une colonne dans un groupe : entiers varint (zigzag) ou doubles bruts
+    static final byte ENCODING_VARINT = 0;
+    static final byte ENCODING_DOUBLE = 1;
+
+    private ColumnarFormat() {
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+
+    static void writeSignedVarInt(DataOutput out, int value) throws IOException {
+        writeVarInt(out, (value << 1) ^ (value >> 31));
+    }
+
+    static int readSignedVarInt(DataInput in) throws IOException {
+        int zigzag = readVarInt(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
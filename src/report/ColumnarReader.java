@@ -0,0 +1,151 @@
+package report;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static report.ColumnarFormat.*;
+
+/**
+ * Lecture d'un fichier écrit par ColumnarWriter, ligne par ligne avec un curseur :
+ * <pre>
+ * try (ColumnarReader reader = ColumnarReader.open(path)) {
+ *     int lcom = reader.column("LCOM1");
+ *     while (reader.next()) {
+ *         if (reader.has(lcom)) use(reader.className(), reader.get(lcom));
+ *     }
+ * }
+ * </pre>
+ * Un groupe de lignes est décodé d'un coup dans des tableaux primitifs ; aucun nombre n'est reparsé depuis du texte.
+ */
+public class ColumnarReader implements Closeable {
+    private final DataInputStream in;
+    private final List<String> columns;
+    private final List<String> dictionary = new ArrayList<>();
+
+    private int[] projects = new int[0];
+    private int[] versions = new int[0];
+    private int[] classes = new int[0];
+    private double[][] values;
+    private int rows;
+    private int cursor = -1;
+    private boolean finished;
+
+    private ColumnarReader(DataInputStream in, List<String> columns) {
+        this.in = in;
+        this.columns = columns;
+        this.values = new double[columns.size()][0];
+    }
+
+    public static ColumnarReader open(Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        try {
+            if (in.readInt() != MAGIC) throw new IOException("Pas un fichier de métriques colonnaire: " + file);
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) throw new IOException("Version de format non supportée (" + version + "): " + file);
+            int count = in.readInt();
+            List<String> columns = new ArrayList<>(count);
+            for (int c = 0; c < count; c++) {
+                columns.add(in.readUTF());
+                in.readByte(); // type de la colonne, informatif
+            }
+            return new ColumnarReader(in, List.copyOf(columns));
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Noms des colonnes de métriques, dans l'ordre du fichier
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    // Indice d'une colonne de métrique par son nom, -1 si le fichier ne la contient pas
+    public int column(String name) {
+        return columns.indexOf(name);
+    }
+
+    public boolean next() throws IOException {
+        if (++cursor < rows) return true;
+        if (finished || !readGroup()) {
+            finished = true;
+            return false;
+        }
+        cursor = 0;
+        return true;
+    }
+
+    public String project() {
+        return dictionary.get(projects[cursor]);
+    }
+
+    public String version() {
+        return dictionary.get(versions[cursor]);
+    }
+
+    public String className() {
+        return dictionary.get(classes[cursor]);
+    }
+
+    public boolean has(int column) {
+        return !Double.isNaN(values[column][cursor]);
+    }
+
+    // Valeur de la ligne courante, NaN si absente
+    public double get(int column) {
+        return values[column][cursor];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean readGroup() throws IOException {
+        int count = in.readInt();
+        if (count == END) return false;
+        rows = count;
+        if (projects.length < count) {
+            projects = new int[count];
+            versions = new int[count];
+            classes = new int[count];
+            for (int c = 0; c < values.length; c++) values[c] = new double[count];
+        }
+
+        int entries = readVarInt(in);
+        for (int i = 0; i < entries; i++) dictionary.add(in.readUTF());
+
+        readRuns(projects);
+        readRuns(versions);
+        for (int r = 0; r < count; r++) classes[r] = readVarInt(in);
+
+        byte[] present = new byte[(count + 7) / 8];
+        for (double[] column : values) {
+            byte encoding = in.readByte();
+            in.readFully(present);
+            for (int r = 0; r < count; r++) {
+                if ((present[r >> 3] & (1 << (r & 7))) == 0) {
+                    column[r] = Double.NaN;
+                } else {
+                    column[r] = encoding == ENCODING_VARINT ? readSignedVarInt(in) : in.readDouble();
+                }
+            }
+        }
+        return true;
+    }
+
+    private void readRuns(int[] column) throws IOException {
+        int runs = readVarInt(in);
+        int r = 0;
+        for (int i = 0; i < runs; i++) {
+            int value = readVarInt(in);
+            int length = readVarInt(in);
+            Arrays.fill(column, r, r + length, value);
+            r += length;
+        }
+    }
+}
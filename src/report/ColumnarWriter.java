@@ -0,0 +1,149 @@
+package report;
+
+import analyzers.Metric;
+import analyzers.MetricTable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static report.ColumnarFormat.*;
+
+/**
+ * Écrit les lignes de classes dans un fichier binaire colonnaire (voir ColumnarFormat),
+ * par groupes de ROW_GROUP lignes : les chaînes ne sont écrites qu'une fois, les compteurs
+ * en varint et les valeurs absentes ne prennent qu'un bit. Les lignes AVG, dérivées, n'y figurent pas.
+ * Relecture avec ColumnarReader.
+ */
+public class ColumnarWriter implements ReportSink, Closeable {
+    private final DataOutputStream out;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> newEntries = new ArrayList<>();
+
+    private final int[] projects = new int[ROW_GROUP];
+    private final int[] versions = new int[ROW_GROUP];
+    private final int[] classes = new int[ROW_GROUP];
+    private final double[][] values = new double[Metric.count()][ROW_GROUP];
+    private int rows;
+
+    private int pid;
+    private int version;
+
+    public ColumnarWriter(Path file) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(Metric.count());
+        for (Metric metric : Metric.values()) {
+            out.writeUTF(metric.getColumn());
+            out.writeByte(metric.getKind() == Metric.Kind.COUNT ? KIND_COUNT : KIND_RATE);
+        }
+    }
+
+    @Override
+    public void beginVersion(String pid, String version) {
+        this.pid = id(pid);
+        this.version = id(version);
+    }
+
+    @Override
+    public void writeClasses(MetricTable table) throws IOException {
+        for (int r = 0; r < table.size(); r++) {
+            projects[rows] = pid;
+            versions[rows] = version;
+            classes[rows] = id(table.className(r));
+            for (int c = 0; c < Metric.count(); c++) {
+                values[c][rows] = table.get(r, Metric.byIndex(c));
+            }
+            if (++rows == ROW_GROUP) flushGroup();
+        }
+    }
+
+    @Override
+    public void endVersion() {
+        // Rien à faire : les groupes de lignes peuvent couvrir plusieurs versions
+    }
+
+    /**
+     * Ajoute une ligne déjà décodée (ex. relue d'un fichier partiel), values dans l'ordre de Metric
+     */
+    public void writeRow(String project, String versionLabel, String className, double[] rowValues) throws IOException {
+        projects[rows] = id(project);
+        versions[rows] = id(versionLabel);
+        classes[rows] = id(className);
+        for (int c = 0; c < Metric.count(); c++) {
+            values[c][rows] = rowValues[c];
+        }
+        if (++rows == ROW_GROUP) flushGroup();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (rows > 0) flushGroup();
+        out.writeInt(END);
+        out.close();
+    }
+
+    private int id(String value) {
+        Integer id = dictionary.get(value);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.put(value, id);
+            newEntries.add(value);
+        }
+        return id;
+    }
+
+    private void flushGroup() throws IOException {
+        out.writeInt(rows);
+        writeVarInt(out, newEntries.size());
+        for (String entry : newEntries) out.writeUTF(entry);
+        newEntries.clear();
+
+        writeRuns(projects);
+        writeRuns(versions);
+        for (int r = 0; r < rows; r++) writeVarInt(out, classes[r]);
+
+        byte[] present = new byte[(rows + 7) / 8];
+        for (double[] column : values) {
+            Arrays.fill(present, (byte) 0);
+            boolean integral = true;
+            for (int r = 0; r < rows; r++) {
+                double value = column[r];
+                if (Double.isNaN(value)) continue;
+                present[r >> 3] |= (byte) (1 << (r & 7));
+                if (value != (int) value) integral = false;
+            }
+            // Les compteurs (et les deltas) sont entiers ; une colonne non entière reste en doubles
+            out.writeByte(integral ? ENCODING_VARINT : ENCODING_DOUBLE);
+            out.write(present);
+            for (int r = 0; r < rows; r++) {
+                double value = column[r];
+                if (Double.isNaN(value)) continue;
+                if (integral) {
+                    writeSignedVarInt(out, (int) value);
+                } else {
+                    out.writeDouble(value);
+                }
+            }
+        }
+        rows = 0;
+    }
+
+    // Plages de valeurs identiques : une version entière tient en une seule plage
+    private void writeRuns(int[] column) throws IOException {
+        int runs = 0;
+        for (int r = 0; r < rows; r++) {
+            if (r == 0 || column[r] != column[r - 1]) runs++;
+        }
+        writeVarInt(out, runs);
+        for (int r = 0; r < rows; ) {
+            int end = r;
+            while (end < rows && column[end] == column[r]) end++;
+            writeVarInt(out, column[r]);
+            writeVarInt(out, end - r);
+            r = end;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package report;
+
+import analyzers.Metric;
+import analyzers.MetricTable;
+import com.opencsv.CSVWriter;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Écrit les lignes du CSV au fil de l'eau et calcule les lignes de synthèse de chaque version
+ * (AVG par défaut, voir withSummary) avec des accumulateurs numériques, sans garder les lignes en mémoire.
+ * Les valeurs ne sont formatées en texte qu'ici.
+ * Les totaux de chaque version sont aussi cumulés par projet, et ceux des versions terminées
+ * restent disponibles pour la fusion des sorties partielles.
+ */
+public class CsvReportWriter implements ReportSink {
+    // Colonnes d'identification, suivies d'une colonne par Metric
+    private static final int KEY_COLUMNS = 3;
+
+    /**
+     * Totaux d'une version terminée
+     */
+    public record VersionTotals(String pid, String version, MetricAccumulator totals) {
+    }
+
+    private final CSVWriter writer;
+    private final List<VersionTotals> completed = new ArrayList<>();
+    // Projet -> libellé de version (buggy, fixed...) -> totaux de toutes ses versions
+    private final Map<String, Map<String, MetricAccumulator>> byProject = new TreeMap<>();
+    private List<SummaryStatistic> statistics = List.of(SummaryStatistic.AVG);
+
+    private String pid;
+    private String version;
+    private MetricAccumulator totals;
+
+    public CsvReportWriter(CSVWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Lignes de synthèse écrites après chaque version et par projet, ex. avg, std, p90
+     */
+    public CsvReportWriter withSummary(List<SummaryStatistic> statistics) {
+        this.statistics = statistics;
+        return this;
+    }
+
+    public static String[] header() {
+        String[] header = new String[KEY_COLUMNS + Metric.count()];
+        header[0] = "project";
+        header[1] = "version";
+        header[2] = "class";
+        for (Metric metric : Metric.values()) {
+            header[KEY_COLUMNS + metric.ordinal()] = metric.getColumn();
+        }
+        return header;
+    }
+
+    public void writeHeader() {
+        writer.writeNext(header());
+    }
+
+    @Override
+    public void beginVersion(String pid, String version) {
+        this.pid = pid;
+        this.version = version;
+        this.totals = new MetricAccumulator();
+    }
+
+    @Override
+    public void writeClasses(MetricTable classes) {
+        int size = classes.size();
+        for (int r = 0; r < size; r++) {
+            String[] row = new String[KEY_COLUMNS + Metric.count()];
+            row[0] = pid;
+            row[1] = version;
+            row[2] = classes.className(r);
+            for (int c = 0; c < Metric.count(); c++) {
+                Metric metric = Metric.byIndex(c);
+                row[KEY_COLUMNS + c] = classes.has(r, metric) ? metric.format(classes.get(r, metric)) : "";
+            }
+            writer.writeNext(row);
+        }
+        totals.add(classes);
+    }
+
+    /**
+     * Écrit la ligne AVG de la version courante
+     */
+    @Override
+    public void endVersion() throws IOException {
+        // Log debug : combien de classes et combien de valeurs par métrique
+        System.out.println("Calcul AVG pour " + pid + " - " + version
+                + " (" + totals.getClassCount() + " classes)");
+        for (Metric metric : Metric.values()) {
+            System.out.println("  " + metric.getColumn() + " : " + totals.count(metric) + " valeurs");
+        }
+
+        totals.compact();
+        writeSummary(pid, version, totals);
+        writer.flush();
+        VersionTotals done = new VersionTotals(pid, version, totals);
+        completed.add(done);
+        addVersionTotals(done);
+    }
+
+    /**
+     * Cumule les totaux d'une version dans ceux de son projet (ex. relus d'une sortie partielle)
+     */
+    public void addVersionTotals(VersionTotals version) {
+        String pid = version.pid();
+        String project = pid.lastIndexOf('-') > 0 ? pid.substring(0, pid.lastIndexOf('-')) : pid;
+        byProject.computeIfAbsent(project, p -> new LinkedHashMap<>())
+                .computeIfAbsent(version.version(), v -> new MetricAccumulator())
+                .merge(version.totals());
+    }
+
+    /**
+     * Lignes de synthèse de chaque projet et libellé de version, toutes versions du projet confondues
+     */
+    public void writeProjectSummaries() throws IOException {
+        for (Map.Entry<String, Map<String, MetricAccumulator>> project : byProject.entrySet()) {
+            for (Map.Entry<String, MetricAccumulator> version : project.getValue().entrySet()) {
+                writeSummary(project.getKey(), version.getKey(), version.getValue());
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeSummary(String project, String version, MetricAccumulator totals) {
+        for (SummaryStatistic statistic : statistics) {
+            String[] row = new String[KEY_COLUMNS + Metric.count()];
+            row[0] = project;
+            row[1] = version;
+            row[2] = statistic.getLabel();
+            for (Metric metric : Metric.values()) {
+                row[KEY_COLUMNS + metric.ordinal()] = statistic.format(totals, metric);
+            }
+            writer.writeNext(row);
+        }
+    }
+
+    public List<VersionTotals> getCompletedVersions() {
+        return Collections.unmodifiableList(completed);
+    }
+}
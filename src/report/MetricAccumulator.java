@@ -0,0 +1,159 @@
+package report;
+
+import analyzers.Metric;
+import analyzers.MetricTable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Statistiques par métrique d'un ensemble de classes, calculées au fil de l'eau sans garder les valeurs :
+ * nombre, somme, moyenne et variance (Welford), min, max et quantiles approchés (QuantileSketch).
+ * Deux accumulateurs se fusionnent sans perte (hors quantiles) : les résultats après fusion sont
+ * ceux d'un run unique, quel que soit le découpage entre threads, workers ou machines.
+ */
+public class MetricAccumulator {
+    private final double[] sums = new double[Metric.count()];
+    private final int[] counts = new int[Metric.count()];
+    // Welford : moyenne courante et somme des carrés des écarts, par colonne
+    private final double[] means = new double[Metric.count()];
+    private final double[] m2 = new double[Metric.count()];
+    private final double[] min = new double[Metric.count()];
+    private final double[] max = new double[Metric.count()];
+    private final QuantileSketch[] sketches = new QuantileSketch[Metric.count()];
+    private int classCount;
+
+    public MetricAccumulator() {
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int c = 0; c < sketches.length; c++) sketches[c] = new QuantileSketch();
+    }
+
+    public void add(MetricTable classes) {
+        int size = classes.size();
+        // Agrégation colonne par colonne sur les tableaux primitifs
+        for (int c = 0; c < Metric.count(); c++) {
+            double[] column = classes.column(Metric.byIndex(c));
+            double sum = 0.0;
+            int count = counts[c];
+            double mean = means[c];
+            double squares = m2[c];
+            for (int r = 0; r < size; r++) {
+                double value = column[r];
+                if (Double.isNaN(value)) continue;
+                sum += value;
+                count++;
+                double delta = value - mean;
+                mean += delta / count;
+                squares += delta * (value - mean);
+                if (value < min[c]) min[c] = value;
+                if (value > max[c]) max[c] = value;
+                sketches[c].add(value);
+            }
+            sums[c] += sum;
+            counts[c] = count;
+            means[c] = mean;
+            m2[c] = squares;
+        }
+        classCount += size;
+    }
+
+    public void merge(MetricAccumulator other) {
+        for (int c = 0; c < Metric.count(); c++) {
+            int count = counts[c] + other.counts[c];
+            if (other.counts[c] > 0) {
+                // Combinaison de Chan et al. des deux moyennes et sommes de carrés
+                double delta = other.means[c] - means[c];
+                means[c] += delta * other.counts[c] / count;
+                m2[c] += other.m2[c] + delta * delta * counts[c] * (double) other.counts[c] / count;
+            }
+            sums[c] += other.sums[c];
+            counts[c] = count;
+            min[c] = Math.min(min[c], other.min[c]);
+            max[c] = Math.max(max[c], other.max[c]);
+            sketches[c].merge(other.sketches[c]);
+        }
+        classCount += other.classCount;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public int count(Metric metric) {
+        return counts[metric.ordinal()];
+    }
+
+    // Moyenne des valeurs présentes, NaN si aucune (somme / nombre, comme l'ancienne ligne AVG)
+    public double mean(Metric metric) {
+        int c = metric.ordinal();
+        return counts[c] > 0 ? sums[c] / counts[c] : Double.NaN;
+    }
+
+    // Variance d'échantillon, NaN avec moins de deux valeurs
+    public double variance(Metric metric) {
+        int c = metric.ordinal();
+        return counts[c] > 1 ? m2[c] / (counts[c] - 1) : Double.NaN;
+    }
+
+    public double std(Metric metric) {
+        return Math.sqrt(variance(metric));
+    }
+
+    public double min(Metric metric) {
+        int c = metric.ordinal();
+        return counts[c] > 0 ? min[c] : Double.NaN;
+    }
+
+    public double max(Metric metric) {
+        int c = metric.ordinal();
+        return counts[c] > 0 ? max[c] : Double.NaN;
+    }
+
+    // Quantile approché (q entre 0 et 1), borné par le min et le max exacts
+    public double quantile(Metric metric, double q) {
+        int c = metric.ordinal();
+        if (counts[c] == 0) return Double.NaN;
+        return Math.max(min[c], Math.min(max[c], sketches[c].quantile(q)));
+    }
+
+    /**
+     * Libère les tampons des sketches : à appeler quand l'accumulateur ne recevra plus de valeurs
+     */
+    public void compact() {
+        for (QuantileSketch sketch : sketches) sketch.compress();
+    }
+
+    /**
+     * Forme binaire exacte (doubles non arrondis), pour les sorties partielles des workers
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(classCount);
+        for (int c = 0; c < Metric.count(); c++) {
+            out.writeDouble(sums[c]);
+            out.writeInt(counts[c]);
+            out.writeDouble(means[c]);
+            out.writeDouble(m2[c]);
+            out.writeDouble(min[c]);
+            out.writeDouble(max[c]);
+            sketches[c].writeTo(out);
+        }
+    }
+
+    public static MetricAccumulator readFrom(DataInput in) throws IOException {
+        MetricAccumulator accumulator = new MetricAccumulator();
+        accumulator.classCount = in.readInt();
+        for (int c = 0; c < Metric.count(); c++) {
+            accumulator.sums[c] = in.readDouble();
+            accumulator.counts[c] = in.readInt();
+            accumulator.means[c] = in.readDouble();
+            accumulator.m2[c] = in.readDouble();
+            accumulator.min[c] = in.readDouble();
+            accumulator.max[c] = in.readDouble();
+            accumulator.sketches[c] = QuantileSketch.readFrom(in);
+        }
+        return accumulator;
+    }
+}
@@ -0,0 +1,119 @@
+package report;
+
+import analyzers.Metric;
+import com.opencsv.CSVWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Sorties partielles d'un sweep distribué et leur fusion. Chaque tâche produit :
+ * - NNNNN.csv : les lignes de ses versions, AVG compris, avec l'en-tête habituel ;
+ * - NNNNN.totals : les totaux exacts de chaque version (MetricAccumulator) ;
+ * - NNNNN.rejects.csv : ses fichiers rejetés ;
+ * - NNNNN.bin : ses lignes au format colonnaire, avec --binary.
+ * La fusion concatène les CSV dans l'ordre des tâches et ajoute les lignes de synthèse par projet,
+ * calculées à partir des accumulateurs fusionnés et non des valeurs arrondies du CSV.
+ */
+public final class PartialResults {
+    // 2 : variance, min, max et quantiles dans les totaux
+    private static final int FORMAT_VERSION = 2;
+
+    private PartialResults() {
+    }
+
+    public static void writeTotals(Path file, List<CsvReportWriter.VersionTotals> versions) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(Metric.count());
+            out.writeInt(versions.size());
+            for (CsvReportWriter.VersionTotals version : versions) {
+                out.writeUTF(version.pid());
+                out.writeUTF(version.version());
+                version.totals().writeTo(out);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static List<CsvReportWriter.VersionTotals> readTotals(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION || in.readInt() != Metric.count()) {
+                throw new IOException("Format de totaux incompatible: " + file);
+            }
+            int size = in.readInt();
+            List<CsvReportWriter.VersionTotals> versions = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                versions.add(new CsvReportWriter.VersionTotals(in.readUTF(), in.readUTF(), MetricAccumulator.readFrom(in)));
+            }
+            return versions;
+        }
+    }
+
+    /**
+     * Fusionne les sorties des tâches (chemins sans extension, ex. results/00042) dans resultsFile et rejectsFile
+     */
+    public static void merge(List<Path> tasks, Path resultsFile, Path rejectsFile, List<SummaryStatistic> statistics)
+            throws IOException {
+        List<CsvReportWriter.VersionTotals> versions = new ArrayList<>();
+        try (BufferedWriter results = Files.newBufferedWriter(resultsFile, StandardCharsets.UTF_8);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8)) {
+            boolean resultsHeader = true;
+            boolean rejectsHeader = true;
+            for (Path task : tasks) {
+                resultsHeader = append(task.resolveSibling(task.getFileName() + ".csv"), results, resultsHeader);
+                rejectsHeader = append(task.resolveSibling(task.getFileName() + ".rejects.csv"), rejects, rejectsHeader);
+                versions.addAll(readTotals(task.resolveSibling(task.getFileName() + ".totals")));
+            }
+
+            CsvReportWriter summary = new CsvReportWriter(new CSVWriter(results)).withSummary(statistics);
+            for (CsvReportWriter.VersionTotals version : versions) summary.addVersionTotals(version);
+            summary.writeProjectSummaries();
+        }
+    }
+
+    /**
+     * Réencode les fichiers colonnaires des tâches en un seul, dans l'ordre des tâches
+     */
+    public static void mergeBinary(List<Path> tasks, Path binaryFile) throws IOException {
+        try (ColumnarWriter writer = new ColumnarWriter(binaryFile)) {
+            double[] row = new double[Metric.count()];
+            for (Path task : tasks) {
+                Path part = task.resolveSibling(task.getFileName() + ".bin");
+                if (!Files.exists(part)) continue;
+                try (ColumnarReader reader = ColumnarReader.open(part)) {
+                    // Colonnes relues par nom : un fichier partiel d'une autre version de Metric reste lisible
+                    int[] columns = new int[Metric.count()];
+                    for (Metric metric : Metric.values()) columns[metric.ordinal()] = reader.column(metric.getColumn());
+                    while (reader.next()) {
+                        for (int c = 0; c < row.length; c++) row[c] = columns[c] < 0 ? Double.NaN : reader.get(columns[c]);
+                        writer.writeRow(reader.project(), reader.version(), reader.className(), row);
+                    }
+                }
+            }
+        }
+    }
+
+    // Copie un CSV partiel ; son en-tête n'est gardé que pour le premier. Retourne s'il faut encore un en-tête
+    private static boolean append(Path part, BufferedWriter out, boolean withHeader) throws IOException {
+        if (!Files.exists(part)) return withHeader;
+        try (BufferedReader in = Files.newBufferedReader(part, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            if (line == null) return withHeader;
+            if (withHeader) {
+                out.write(line);
+                out.write('\n');
+            }
+            while ((line = in.readLine()) != null) {
+                out.write(line);
+                out.write('\n');
+            }
+        }
+        return false;
+    }
+}
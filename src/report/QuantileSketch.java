@@ -0,0 +1,171 @@
+package report;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Résumé approximatif d'une distribution pour estimer ses quantiles (principe du t-digest) :
+ * des centroïdes (moyenne, poids) triés, petits aux extrémités et plus gros au centre.
+ * Mémoire bornée par la compression quel que soit le nombre de valeurs, et deux sketches
+ * se fusionnent sans les valeurs d'origine.
+ */
+public final class QuantileSketch {
+    private static final int DEFAULT_COMPRESSION = 50;
+
+    private final int compression;
+    private double[] means = new double[0];
+    private double[] weights = new double[0];
+    private int size;
+    private double totalWeight;
+
+    // Valeurs ajoutées depuis la dernière compression, libérées à chaque compression :
+    // un sketch terminé ne garde que ses centroïdes
+    private double[] bufferMeans;
+    private double[] bufferWeights;
+    private int buffered;
+
+    public QuantileSketch() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public QuantileSketch(int compression) {
+        this.compression = compression;
+    }
+
+    public void add(double value) {
+        add(value, 1.0);
+    }
+
+    private void add(double mean, double weight) {
+        if (bufferMeans == null) {
+            bufferMeans = new double[compression * 4];
+            bufferWeights = new double[compression * 4];
+        } else if (buffered == bufferMeans.length) {
+            compress();
+            add(mean, weight);
+            return;
+        }
+        bufferMeans[buffered] = mean;
+        bufferWeights[buffered] = weight;
+        buffered++;
+    }
+
+    public void merge(QuantileSketch other) {
+        other.compress();
+        for (int i = 0; i < other.size; i++) add(other.means[i], other.weights[i]);
+    }
+
+    /**
+     * Estimation du quantile q (entre 0 et 1), NaN si le sketch est vide
+     */
+    public double quantile(double q) {
+        compress();
+        if (size == 0) return Double.NaN;
+        if (size == 1) return means[0];
+
+        // Chaque centroïde est centré sur sa masse cumulée ; interpolation linéaire entre deux centres
+        double target = q * totalWeight;
+        double cumulative = 0;
+        double previousCenter = 0;
+        for (int i = 0; i < size; i++) {
+            double center = cumulative + weights[i] / 2;
+            if (target <= center) {
+                if (i == 0) return means[0];
+                double fraction = (target - previousCenter) / (center - previousCenter);
+                return means[i - 1] + fraction * (means[i] - means[i - 1]);
+            }
+            previousCenter = center;
+            cumulative += weights[i];
+        }
+        return means[size - 1];
+    }
+
+    void compress() {
+        if (buffered == 0) {
+            bufferMeans = null;
+            bufferWeights = null;
+            return;
+        }
+        int n = size + buffered;
+        double[] allMeans = Arrays.copyOf(means, n);
+        double[] allWeights = Arrays.copyOf(weights, n);
+        System.arraycopy(bufferMeans, 0, allMeans, size, buffered);
+        System.arraycopy(bufferWeights, 0, allWeights, size, buffered);
+        buffered = 0;
+        bufferMeans = null;
+        bufferWeights = null;
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(allMeans[a], allMeans[b]));
+
+        double total = 0;
+        for (int i = 0; i < n; i++) total += allWeights[i];
+
+        double[] newMeans = new double[Math.min(n, compression * 2)];
+        double[] newWeights = new double[newMeans.length];
+        int count = 0;
+        double before = 0;
+        double mean = allMeans[order[0]];
+        double weight = allWeights[order[0]];
+        for (int k = 1; k < n; k++) {
+            int i = order[k];
+            double proposed = weight + allWeights[i];
+            double q = (before + proposed / 2) / total;
+            // Taille maximale d'un centroïde : faible près de q = 0 ou 1, pour des quantiles extrêmes précis
+            double limit = Math.max(1.0, 4 * total * q * (1 - q) / compression);
+            if (proposed <= limit) {
+                mean += (allMeans[i] - mean) * allWeights[i] / proposed;
+                weight = proposed;
+            } else {
+                if (count == newMeans.length) {
+                    newMeans = Arrays.copyOf(newMeans, count * 2);
+                    newWeights = Arrays.copyOf(newWeights, count * 2);
+                }
+                newMeans[count] = mean;
+                newWeights[count] = weight;
+                count++;
+                before += weight;
+                mean = allMeans[i];
+                weight = allWeights[i];
+            }
+        }
+        if (count == newMeans.length) {
+            newMeans = Arrays.copyOf(newMeans, count + 1);
+            newWeights = Arrays.copyOf(newWeights, count + 1);
+        }
+        newMeans[count] = mean;
+        newWeights[count] = weight;
+        count++;
+
+        means = Arrays.copyOf(newMeans, count);
+        weights = Arrays.copyOf(newWeights, count);
+        size = count;
+        totalWeight = total;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        compress();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeDouble(means[i]);
+            out.writeDouble(weights[i]);
+        }
+    }
+
+    public static QuantileSketch readFrom(DataInput in) throws IOException {
+        QuantileSketch sketch = new QuantileSketch();
+        int size = in.readInt();
+        sketch.means = new double[size];
+        sketch.weights = new double[size];
+        for (int i = 0; i < size; i++) {
+            sketch.means[i] = in.readDouble();
+            sketch.weights[i] = in.readDouble();
+            sketch.totalWeight += sketch.weights[i];
+        }
+        sketch.size = size;
+        return sketch;
+    }
+}
@@ -0,0 +1,41 @@
+package report;
+
+import analyzers.MetricTable;
+
+import java.io.IOException;
+
+/**
+ * Destination des résultats d'un run, version par version : CSV, fichier colonnaire...
+ */
+public interface ReportSink {
+    void beginVersion(String pid, String version) throws IOException;
+
+    void writeClasses(MetricTable classes) throws IOException;
+
+    void endVersion() throws IOException;
+
+    /**
+     * Écrit les mêmes résultats dans deux destinations
+     */
+    static ReportSink tee(ReportSink first, ReportSink second) {
+        return new ReportSink() {
+            @Override
+            public void beginVersion(String pid, String version) throws IOException {
+                first.beginVersion(pid, version);
+                second.beginVersion(pid, version);
+            }
+
+            @Override
+            public void writeClasses(MetricTable classes) throws IOException {
+                first.writeClasses(classes);
+                second.writeClasses(classes);
+            }
+
+            @Override
+            public void endVersion() throws IOException {
+                first.endVersion();
+                second.endVersion();
+            }
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package report;
+
+import analyzers.Metric;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Statistique d'une ligne de synthèse : avg, std, min, max, count ou un quantile pNN (ex. p50, p90).
+ * Le libellé en majuscules (AVG, P90...) est écrit dans la colonne class.
+ */
+public final class SummaryStatistic {
+    public static final SummaryStatistic AVG = new SummaryStatistic("AVG", -1);
+
+    private final String label;
+    // Quantile entre 0 et 1, ou -1 pour les statistiques qui n'en sont pas
+    private final double quantile;
+
+    private SummaryStatistic(String label, double quantile) {
+        this.label = label;
+        this.quantile = quantile;
+    }
+
+    /**
+     * Liste de statistiques, ex. "avg,std,p50,p90"
+     */
+    public static List<SummaryStatistic> parse(String spec) {
+        List<SummaryStatistic> statistics = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String name = part.trim().toUpperCase(Locale.ROOT);
+            switch (name) {
+                case "AVG", "STD", "MIN", "MAX", "COUNT":
+                    statistics.add(new SummaryStatistic(name, -1));
+                    break;
+                default:
+                    if (!name.matches("P\\d{1,2}(\\.\\d+)?")) {
+                        throw new IllegalArgumentException("Statistique inconnue: " + part);
+                    }
+                    statistics.add(new SummaryStatistic(name, Double.parseDouble(name.substring(1)) / 100));
+            }
+        }
+        return statistics;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public double of(MetricAccumulator totals, Metric metric) {
+        if (quantile >= 0) return totals.quantile(metric, quantile);
+        switch (label) {
+            case "STD":
+                return totals.std(metric);
+            case "MIN":
+                return totals.min(metric);
+            case "MAX":
+                return totals.max(metric);
+            case "COUNT":
+                return totals.count(metric);
+            default:
+                return totals.mean(metric);
+        }
+    }
+
+    // Valeur formatée pour le CSV, vide quand elle n'est pas définie (aucune valeur, ou une seule pour std)
+    public String format(MetricAccumulator totals, Metric metric) {
+        double value = of(totals, metric);
+        if (Double.isNaN(value) || (totals.count(metric) == 0 && !label.equals("COUNT"))) return "";
+        return label.equals("COUNT") ? String.valueOf((long) value) : String.format(Locale.US, "%.2f", value);
+    }
+}